@@ -0,0 +1,153 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+/**
+ * Solves many boards of the same size at once.  The boards are handed
+ * out in small chunks to a fixed set of worker threads, one per core by
+ * default.  Each worker keeps its own BoggleSolver, whose arrays are
+ * set up for the first board and then reused for every other one, so
+ * a batch does no per-board setup beyond reading the letters.
+ *
+ * After each batch the solver remembers how many boards it did and how
+ * long that took, for reporting throughput.
+ * @see BoggleSolver
+ */
+public class BoggleBatchSolver {
+
+    //Boards a worker takes at a time
+    private static final int CHUNK = 64;
+
+    //vars
+    private final int rows, cols, minWordLength;
+    private final int threads;
+    private final ExecutorService workers;
+    private final ThreadLocal<BoggleSolver> solvers;
+
+    private volatile long lastBoards, lastNanos;
+    private final AtomicLong totalBoards = new AtomicLong();
+
+
+    /**
+     * Creates a batch solver with one worker per available core.
+     * @param lexicon   the lexicon to solve against
+     * @param r   number of rows of every board
+     * @param c   number of columns of every board
+     * @param minLength   the minimum size of a legal word
+     */
+    public BoggleBatchSolver(BoggleLexicon lexicon, int r, int c, int minLength) {
+	this(lexicon, r, c, minLength, Runtime.getRuntime().availableProcessors());
+    }
+
+
+    public BoggleBatchSolver(final BoggleLexicon lexicon, int r, int c, int minLength,
+			     int threadCount) {
+	rows = r;
+	cols = c;
+	minWordLength = minLength;
+	threads = Math.max(1, threadCount);
+
+	workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+	    private final AtomicInteger count = new AtomicInteger();
+	    public Thread newThread(Runnable task) {
+		Thread worker = new Thread(task, "boggle-batch-" + count.incrementAndGet());
+		worker.setDaemon(true);
+		return worker;
+	    }});
+	solvers = new ThreadLocal<BoggleSolver>() {
+	    protected BoggleSolver initialValue() {
+		return new BoggleSolver(lexicon);
+	    }};
+    }
+
+
+    /**
+     * Solves every board.
+     * @param boards   each board's letters, row by row
+     * @return the words and paths found on each board, in the same
+     * order as boards
+     */
+    public List<BoggleSolution> solveAll(final String[][] boards) {
+	final BoggleSolution[] results = new BoggleSolution[boards.length];
+	final AtomicInteger next = new AtomicInteger();
+	List<Callable<Void>> jobs = new ArrayList<Callable<Void>>(threads);
+
+	for (int i = 0; i < threads; i++) {
+	    jobs.add(new Callable<Void>() {
+		public Void call() {
+		    BoggleSolver solver = solvers.get();
+		    int start;
+		    while ((start = next.getAndAdd(CHUNK)) < boards.length) {
+			int end = Math.min(start + CHUNK, boards.length);
+			for (int b = start; b < end; b++) {
+			    BoggleSolution words = new BoggleSolution();
+			    solver.setBoard(boards[b], rows, cols);
+			    solver.solve(minWordLength, words);
+			    results[b] = words;
+			}
+		    }
+		    return null;
+		}});
+	}
+
+	long begin = System.nanoTime();
+	try {
+	    for (Future<Void> job : workers.invokeAll(jobs))
+		job.get();
+	}
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("solveAll(): interrupted", e);
+	}
+	catch (ExecutionException e) {
+	    throw new IllegalStateException("solveAll(): solve failed", e.getCause());
+	}
+
+	lastNanos = System.nanoTime() - begin;
+	lastBoards = boards.length;
+	totalBoards.addAndGet(boards.length);
+	return Arrays.asList(results);
+    }
+
+
+    /**
+     * Solves every board of a stream.
+     * @param boards   each board's letters, row by row
+     * @return the words and paths found on each board, in stream order
+     */
+    public List<BoggleSolution> solveAll(Stream<String[]> boards) {
+	return solveAll(boards.toArray(String[][]::new));
+    }
+
+
+    /**
+     * @return boards per second achieved by the last solveAll, or 0
+     * before the first one
+     */
+    public double getBoardsPerSecond() {
+	long nanos = lastNanos;
+	return (nanos == 0) ? 0 : lastBoards * 1e9 / nanos;
+    }
+
+
+    /**
+     * @return number of boards solved by every solveAll so far
+     */
+    public long getBoardsSolved() {
+	return totalBoards.get();
+    }
+
+
+    public int getThreadCount() {
+	return threads;
+    }
+
+
+    /**
+     * Stops the worker threads.  The solver cannot be used afterwards.
+     */
+    public void shutdown() {
+	workers.shutdown();
+    }
+}
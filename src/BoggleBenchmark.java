@@ -0,0 +1,273 @@
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * Micro benchmarks for BogglePlayer, so that every change to the
+ * solver or the lexicon can be measured against the same baseline.
+ *
+ * Each benchmark is warmed up, then run for a number of timed
+ * iterations.  For each one we print the throughput, the time per
+ * operation and the bytes allocated per operation by all threads, so
+ * the parallel solver's worker threads are counted too.  Boards are
+ * rolled from the dice bag with fixed seeds, and getCustomBoard's board
+ * is always included, so runs on different builds see the same input.
+ *
+ * Usage:
+ * java BoggleBenchmark [ wordfile [ seconds per iteration [ filter ]]]
+ * where filter, when given, only runs benchmarks whose name contains it.
+ * @see BogglePlayer
+ */
+public class BoggleBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long SEED = 210;
+    private static final int[] BOARD_SIZES = { 4, 5, 10, 25 };
+    private static final int MIN_WORD_LENGTH = 4;
+    private static final String WORDLISTFILENAME = "enable1.txt";
+
+    //Operations store results here so the JIT can't drop them
+    private static int sink;
+
+    private double seconds;
+    private String filter;
+    private Set<String> wordList;
+
+
+    /**
+     * One operation to be timed.
+     */
+    interface Operation {
+	int run();
+    }
+
+
+    public BoggleBenchmark(Set<String> wordList, double seconds, String filter) {
+	this.wordList = wordList;
+	this.seconds = seconds;
+	this.filter = filter;
+    }
+
+
+    /**
+     * Rolls a board from the dice bag with a fixed seed.
+     * @param seed   the same seed always gives the same board
+     * @param size   number of rows and columns
+     * @return the letters of the board, row by row
+     */
+    public static String[] seededBoard(long seed, int size) {
+	return new BoggleDice(seed).getRandomBoard(size, size);
+    }
+
+
+    /**
+     * A board drawn from only a few letters, on which searching the
+     * board is at its worst.
+     * @param seed   the same seed always gives the same board
+     * @param size   number of rows and columns
+     * @param letters   the letters to draw from
+     * @return the letters of the board, row by row
+     */
+    public static String[] fewLettersBoard(long seed, int size, String letters) {
+	Random randomizer = new Random(seed);
+	String[] board = new String[size * size];
+	for (int i = 0; i < board.length; i++)
+	    board[i] = String.valueOf(letters.charAt(randomizer.nextInt(letters.length())));
+	return board;
+    }
+
+
+    public void runAll() {
+	System.out.printf("%-48s %14s %14s %14s%n", "Benchmark", "ops/s", "ns/op", "B/op");
+
+	benchmark("buildLexicon", new Operation() {
+	    public int run() {
+		BogglePlayer player = new BogglePlayer();
+		player.buildLexicon(wordList);
+		return player.isInLexicon("boggle") ? 1 : 0;
+	    }});
+
+	final BogglePlayer player = new BogglePlayer();
+	player.buildLexicon(wordList);
+	final String[] hits = { "aahed", "boggle", "quilt", "zymurgy", "lexicon" };
+	final String[] misses = { "aahx", "bogglex", "qqqq", "zzzzzz", "lexico" };
+
+	benchmark("isInLexicon/hit", new Operation() {
+	    public int run() {
+		int count = 0;
+		for (String word : hits)
+		    if (player.isInLexicon(word)) count++;
+		return count;
+	    }});
+	benchmark("isInLexicon/miss", new Operation() {
+	    public int run() {
+		int count = 0;
+		for (String word : misses)
+		    if (player.isInLexicon(word)) count++;
+		return count;
+	    }});
+
+	for (int size : BOARD_SIZES)
+	    solveBenchmarks(size + "x" + size, size, seededBoard(SEED + size, size));
+	solveBenchmarks("custom", 4, player.getCustomBoard());
+	solveBenchmarks("25x25/fewLetters", 25, fewLettersBoard(SEED, 25, "AEIRST"));
+    }
+
+
+    /*
+     * Solves one board with every solver, then times isOnBoard on words
+     * that are and aren't on it.
+     */
+    private void solveBenchmarks(String boardName, int size, final String[] letters) {
+	final BogglePlayer player = new BogglePlayer(MIN_WORD_LENGTH, size, size);
+	player.buildLexicon(wordList);   //no solution cache, as by default
+	player.setBoard(letters);
+
+	String[] modes = { "classic", "noAllocation", "bitboard", "parallel", "dictionary", "auto" };
+	for (int mode = 0; mode < modes.length; mode++) {
+	    final int solverMode = mode;
+	    benchmark("getAllValidWords/" + boardName + "/" + modes[mode], new Operation() {
+		public int run() {
+		    player.setSolverMode(solverMode);
+		    return player.getAllValidWords(MIN_WORD_LENGTH).size();
+		}});
+	}
+
+	//a new board each time, as a game deals them, on a player as made
+	final BogglePlayer defaultPlayer = new BogglePlayer(MIN_WORD_LENGTH, size, size);
+	defaultPlayer.setLexicon(player.getLexicon());
+	benchmark("setBoardAndSolve/" + boardName + "/default", new Operation() {
+	    public int run() {
+		defaultPlayer.setBoard(letters);
+		return defaultPlayer.solve(MIN_WORD_LENGTH).size();
+	    }});
+
+	//the board turned a quarter, found in the cache after the first solve
+	final BogglePlayer cachedPlayer = new BogglePlayer(MIN_WORD_LENGTH, size, size);
+	cachedPlayer.setLexicon(player.getLexicon());
+	cachedPlayer.useSolutionCache(BogglePlayer.CACHE_DEFAULT);
+	final String[] turned = new String[letters.length];
+	for (int r = 0; r < size; r++)
+	    for (int c = 0; c < size; c++)
+		turned[c * size + (size - 1 - r)] = letters[r * size + c];
+	cachedPlayer.setBoard(letters);
+	cachedPlayer.getAllValidWords(MIN_WORD_LENGTH);
+	cachedPlayer.setBoard(turned);
+	benchmark("getAllValidWords/" + boardName + "/cached", new Operation() {
+	    public int run() {
+		return cachedPlayer.getAllValidWords(MIN_WORD_LENGTH).size();
+	    }});
+
+	//words on the board, and lexicon words that are not
+	player.setSolverMode(BogglePlayer.SOLVER_NO_ALLOCATION);
+	List<String> onBoard = new ArrayList<String>(player.getAllValidWords(MIN_WORD_LENGTH));
+	Set<String> found = new HashSet<String>(onBoard);
+	List<String> offBoard = new ArrayList<String>();
+	for (String word : new TreeSet<String>(wordList)) {
+	    if (offBoard.size() == 32) break;
+	    if (word.length() >= MIN_WORD_LENGTH && !found.contains(word))
+		offBoard.add(word);
+	}
+	if (onBoard.size() > 32)
+	    onBoard = onBoard.subList(0, 32);
+
+	final String[] present = onBoard.toArray(new String[0]);
+	final String[] absent = offBoard.toArray(new String[0]);
+	if (present.length > 0)
+	    benchmark("isOnBoard/" + boardName + "/present", new Operation() {
+		public int run() {
+		    int count = 0;
+		    for (String word : present)
+			if (player.isOnBoard(word) != null) count++;
+		    return count;
+		}});
+	benchmark("isOnBoard/" + boardName + "/absent", new Operation() {
+	    public int run() {
+		int count = 0;
+		for (String word : absent)
+		    if (player.isOnBoard(word) != null) count++;
+		return count;
+	    }});
+    }
+
+
+    /*
+     * Warms up, then measures, one operation and prints its line.
+     */
+    private void benchmark(String name, Operation op) {
+	if (filter != null && !name.contains(filter))
+	    return;
+
+	for (int i = 0; i < WARMUP_ITERATIONS; i++)
+	    iteration(op);
+
+	long ops = 0, nanos = 0, bytes = 0;
+	for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+	    long[] result = iteration(op);
+	    ops += result[0];
+	    nanos += result[1];
+	    bytes += result[2];
+	}
+
+	System.out.printf("%-48s %14.1f %14.1f %14.1f%n", name,
+			  ops * 1e9 / nanos, (double)nanos / ops,
+			  (bytes < 0) ? Double.NaN : (double)bytes / ops);
+    }
+
+
+    /*
+     * Runs op for about the iteration time.
+     * @return operations, nanoseconds and bytes allocated (-1 if the
+     * JVM can't tell; a thread that ends during the iteration takes its
+     * bytes with it, so this can come out low, but not below 0)
+     */
+    private long[] iteration(Operation op) {
+	long limit = (long)(seconds * 1e9);
+	long allocatedBefore = allocatedBytes();
+	long start = System.nanoTime();
+	long elapsed, ops = 0;
+	int result = 0;
+
+	do {
+	    result += op.run();
+	    ops++;
+	    elapsed = System.nanoTime() - start;
+	} while (elapsed < limit);
+
+	long allocatedAfter = allocatedBytes();
+	sink += result;
+	return new long[] { ops, elapsed,
+			    (allocatedBefore < 0) ? -1 : Math.max(0, allocatedAfter - allocatedBefore) };
+    }
+
+
+    /*
+     * Bytes allocated so far by the threads that are alive.  Worker
+     * threads outlive an iteration, so the difference over one counts
+     * what they allocated for it.
+     */
+    private static long allocatedBytes() {
+	ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	if (threads instanceof com.sun.management.ThreadMXBean) {
+	    com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean)threads;
+	    if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+		long total = 0;
+		for (long bytes : hotspot.getThreadAllocatedBytes(threads.getAllThreadIds()))
+		    if (bytes > 0) total += bytes;   //-1 for a thread that has ended
+		return total;
+	    }
+	}
+	return -1;
+    }
+
+
+    public static void main(String args[]) throws Exception {
+	String wordFile = (args.length > 0) ? args[0] : WORDLISTFILENAME;
+	double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 1.0;
+	String filter = (args.length > 2) ? args[2] : null;
+
+	Set<String> words = new HashSet<String>(BoggleLexicon.readWordList(wordFile));
+	new BoggleBenchmark(words, seconds, filter).runAll();
+	if (sink == 42) System.err.print("");
+    }
+}
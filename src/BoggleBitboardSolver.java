@@ -0,0 +1,521 @@
+import java.util.*;
+
+/**
+ * A solver that keeps the board as bit masks.  Every tile has a mask
+ * of its neighbors and every letter has a mask of the tiles showing it,
+ * so the tiles that can extend a path with letter c are just
+ *
+ *     neighbors[tile] & letterMask[c] & ~visited
+ *
+ * and only letters the lexicon allows after the current prefix are
+ * tried.  Boards of up to 64 tiles fit in a single long; bigger boards
+ * use an array of longs per mask, of which only the few words around a
+ * tile's neighbors are ever looked at.
+ *
+ * A tile showing several letters ("Qu", "Th") is in the mask of its
+ * first letter; once the lexicon has taken that letter, the rest of the
+ * face is followed edge by edge before the search goes on.
+ *
+ * Like BoggleSolver, the search keeps its path on an explicit stack, as
+ * deep as the board has tiles, rather than recursing.  It walks the
+ * lexicon's packed graph (BoggleLexicon.getPackedGraph), where a node
+ * and its edges are read from one place.
+ *
+ * A solver is not thread safe; give each thread its own.
+ * @see BogglePlayer
+ * @see BoggleSolver
+ */
+public class BoggleBitboardSolver {
+
+    private static final int WORD_BITS = 64;
+
+    //vars
+    private BoggleLexicon lexicon;
+    private int[] graph;         //lexicon.getPackedGraph(); nodes are positions in it
+    private int rows, cols;      //Size of board
+    private int tiles;           //Total number of tiles on board
+    private int words;           //Longs per mask; 1 for boards up to 64 tiles
+
+    private int[] tileLetter;    //First letter on each tile, -1 if a face isn't all a-z
+    private char[][] tileFace;   //Whole face of each tile, lowercase
+    private int tailWord;        //Word offset added up by the last followTail
+    private int boardLetters;    //Bit i set when letter i is on the board
+
+    //boards of up to 64 tiles
+    private long[] neighborMask; //Per tile
+    private long[] letterMask;   //Per letter
+
+    //bigger boards: mask i of a kind is the longs [i*words, (i+1)*words)
+    private long[] wideNeighbors;
+    private long[] wideLetters;
+    private int[] firstWord, lastWord; //Span of the nonzero longs of each tile's neighbors
+    private long[] wideVisited;
+
+    private char[] path;         //Letters on the current path
+    private int[] foundStamp;    //Per lexicon word, last solve that found it
+    private int solveStamp = 0;
+    private int minWordLength;
+    private BoggleSolution found;  //null when only scoring
+    private int score;             //Points for the words of the last score()
+    private long nodesVisited;     //Tiles the last search stepped onto
+    private long nodesPruned;      //Free neighbors it didn't step onto, as no word goes that way
+    private int[] searchTiles;   //Tiles on the current path
+
+    //search stack: entry d is the d'th tile of the path (searchTiles)
+    private int[] stackNode;     //Lexicon node after the tile
+    private int[] stackWord;     //Word index after the tile
+    private int[] stackLength;   //Letters spelled up to and with the tile
+    private int[] stackLetters;  //Letters still to try after it
+    private int[] stackChild;    //Node for the letter being tried (-1 until looked up on bigger boards)
+    private int[] stackChildWord;
+    private long[] stackNext;    //Tiles still to try with that letter
+    private long[] stackVisited; //Tiles on the path up to the tile (boards up to 64 tiles)
+    private long[] stackFree;    //Its neighbors off the path (boards up to 64 tiles)
+    private int[] stackLetter;   //The letter being tried (bigger boards)
+    private int[] stackSpan;     //Which long of the neighbor mask stackNext is from (bigger boards)
+
+
+    public BoggleBitboardSolver(BoggleLexicon lexicon) {
+	this.lexicon = lexicon;
+	graph = lexicon.getPackedGraph();
+	foundStamp = new int[lexicon.size()];
+    }
+
+
+    /**
+     * Sets up the masks for a board.  Tiles are given row by row.
+     * @param letterArray   the letters that make up the board
+     * @param r   number of rows
+     * @param c   number of columns
+     */
+    public void setBoard(String[] letterArray, int r, int c) {
+	if (r != rows || c != cols || tileLetter == null) {
+	    rows = r;
+	    cols = c;
+	    tiles = rows * cols;
+	    words = (tiles + WORD_BITS - 1) / WORD_BITS;
+	    tileLetter = new int[tiles];
+	    tileFace = new char[tiles][];
+	    searchTiles = new int[tiles];
+	    stackNode = new int[tiles];
+	    stackWord = new int[tiles];
+	    stackLength = new int[tiles];
+	    stackLetters = new int[tiles];
+	    stackChild = new int[tiles];
+	    stackChildWord = new int[tiles];
+	    stackNext = new long[tiles];
+	    if (words == 1) {
+		stackVisited = new long[tiles];
+		stackFree = new long[tiles];
+	    }
+	    else {
+		stackLetter = new int[tiles];
+		stackSpan = new int[tiles];
+	    }
+	    buildNeighbors();
+	}
+
+	boardLetters = 0;
+	if (words == 1)
+	    Arrays.fill(letterMask, 0L);
+	else
+	    Arrays.fill(wideLetters, 0L);
+
+	int letters = 0;
+	for (int t = 0; t < tiles; t++) {
+	    char[] face = letterArray[t].toLowerCase().toCharArray();
+	    tileFace[t] = face;
+	    letters += face.length;
+	    int letter = (face.length == 0) ? -1 : BoggleLexicon.letterIndex(face[0]);
+	    for (char ch : face) {
+		if (BoggleLexicon.letterIndex(ch) < 0)
+		    letter = -1;   //no word can use this tile
+	    }
+	    tileLetter[t] = letter;
+	    if (letter < 0)
+		continue;
+
+	    boardLetters |= 1 << letter;
+	    if (words == 1)
+		letterMask[letter] |= 1L << t;
+	    else
+		wideLetters[letter * words + t / WORD_BITS] |= 1L << (t % WORD_BITS);
+	}
+
+	//the longest path spells every face
+	if (path == null || path.length < letters)
+	    path = new char[letters];
+    }
+
+
+    private void buildNeighbors() {
+	if (words == 1) {
+	    neighborMask = new long[tiles];
+	    letterMask = new long[BoggleLexicon.ALPHABET];
+	}
+	else {
+	    wideNeighbors = new long[tiles * words];
+	    wideLetters = new long[BoggleLexicon.ALPHABET * words];
+	    wideVisited = new long[words];
+	    firstWord = new int[tiles];
+	    lastWord = new int[tiles];
+	}
+
+	for (int t = 0; t < tiles; t++) {
+	    int row = t / cols;
+	    int col = t % cols;
+	    int lo = Integer.MAX_VALUE, hi = -1;
+
+	    for (int i = -1; i <= 1; i++) {
+		for (int j = -1; j <= 1; j++) {
+		    int r = row + i;
+		    int c = col + j;
+		    if ((i == 0 && j == 0) || r < 0 || c < 0 || r >= rows || c >= cols)
+			continue;
+
+		    int n = r * cols + c;
+		    if (words == 1) {
+			neighborMask[t] |= 1L << n;
+		    }
+		    else {
+			int w = n / WORD_BITS;
+			wideNeighbors[t * words + w] |= 1L << (n % WORD_BITS);
+			lo = Math.min(lo, w);
+			hi = Math.max(hi, w);
+		    }
+		}
+	    }
+
+	    if (words > 1) {
+		firstWord[t] = (hi < 0) ? 0 : lo;
+		lastWord[t] = hi;
+	    }
+	}
+    }
+
+
+    /**
+     * Finds every word on the board that is in the lexicon and at
+     * least the minimum length.  Each word is added to out once, with
+     * the first path it was found along.
+     * @param minimumWordLength   the minimum size of a legal word
+     * @param out   where to put the words found
+     */
+    public void solve(int minimumWordLength, BoggleSolution out) {
+	found = out;
+	search(minimumWordLength);
+	found = null;
+    }
+
+
+    /**
+     * Adds up the points of every word on the board, scored as
+     * BogglePlayer.pointsForWord does, without making the words.  This
+     * is what a search for high scoring boards calls over and over, so
+     * it allocates nothing.
+     * @param minimumWordLength   the minimum size of a legal word
+     * @return the board's total score
+     */
+    public int score(int minimumWordLength) {
+	score = 0;
+	search(minimumWordLength);
+	return score;
+    }
+
+
+    /**
+     * @return tiles the last solve or score stepped onto, each time it did
+     */
+    public long getNodesVisited() {
+	return nodesVisited;
+    }
+
+
+    /**
+     * @return free neighbors the last solve or score didn't step onto
+     * because no word of the lexicon goes on that way
+     */
+    public long getNodesPruned() {
+	return nodesPruned;
+    }
+
+
+    /*
+     * Searches from every tile, handing words to found, or adding them
+     * to score when found is null.
+     */
+    private void search(int minimumWordLength) {
+	minWordLength = minimumWordLength;
+	solveStamp++;
+	nodesVisited = 0;
+	nodesPruned = 0;
+
+	for (int t = 0; t < tiles; t++) {
+	    int letter = tileLetter[t];
+	    if (letter < 0)
+		continue;
+	    int edge = edge(0, letter);   //the root is at 0
+	    if (edge < 0)
+		continue;
+	    int node = graph[edge];
+	    int word = graph[edge + 1];
+	    if (tileFace[t].length > 1) {
+		node = followTail(t, node, 0);
+		if (node < 0)
+		    continue;
+		word += tailWord;
+	    }
+
+	    if (words == 1)
+		search(t, node, word);
+	    else
+		searchWide(t, node, word);
+	}
+    }
+
+
+    /*
+     * Follows the letters of tile's face after the first, from the node
+     * its first letter led to.
+     * @return the node reached, or -1 when no word goes on that way;
+     * the word offset added up is left in tailWord
+     */
+    private int followTail(int tile, int node, int word) {
+	char[] face = tileFace[tile];
+	for (int k = 1; k < face.length; k++) {
+	    int edge = edge(node, face[k] - 'a');
+	    if (edge < 0)
+		return -1;
+	    node = graph[edge];
+	    word += graph[edge + 1];
+	}
+	tailWord = word;
+	return node;
+    }
+
+
+    /*
+     * @return where in graph node's edge for letter is (the child's
+     * position, then the word offset), or -1 when it has none
+     */
+    private int edge(int node, int letter) {
+	int mask = graph[node];
+	int bit = 1 << letter;
+	if ((mask & bit) == 0)
+	    return -1;
+	return node + 1 + 2 * Integer.bitCount(mask & (bit - 1));
+    }
+
+
+    /*
+     * Puts tile at the end of the path: length letters were spelled
+     * before it, by depth tiles.
+     * @return the letters spelled with it
+     */
+    private int addIfWord(int tile, int node, int word, int length, int depth) {
+	searchTiles[depth] = tile;
+	nodesVisited++;
+	char[] face = tileFace[tile];
+	if (found == null)
+	    length += face.length;   //scoring only needs the length
+	else
+	    for (char ch : face)
+		path[length++] = ch;
+	if (length >= minWordLength && (graph[node] & BoggleLexicon.TERMINAL) != 0
+		&& foundStamp[word] != solveStamp) {
+	    foundStamp[word] = solveStamp;
+	    if (found == null)
+		score += length - minWordLength + 1;
+	    else
+		found.add(new String(path, 0, length), searchTiles, depth + 1);
+	}
+	return length;
+    }
+
+
+    /*
+     * Depth first search from tile start, which spells node, with word
+     * index word.  The entry for the last tile of the path is kept in
+     * locals; the ones before it are on the stack, each with the tiles
+     * on the path as a mask (visited), so nothing has to be undone on
+     * the way back, and the free neighbors it has left to try.
+     */
+    private void search(int start, int node, int word) {
+	int depth = 0;
+	long visited = 1L << start;
+	int length = addIfWord(start, node, word, 0, 0);
+	long free = neighborMask[start] & ~visited;
+	int letters = graph[node] & boardLetters;
+	long next = 0;           //Free neighbors showing the letter being tried
+	int child = 0, childWord = 0;
+	nodesPruned += Long.bitCount(free);   //taken back for each tile stepped onto
+
+	while (true) {
+	    while (next == 0) {
+		if (letters == 0 || free == 0) {
+		    if (depth == 0)
+			return;
+		    depth--;   //nothing more from here; back up
+		    node = stackNode[depth];
+		    word = stackWord[depth];
+		    length = stackLength[depth];
+		    visited = stackVisited[depth];
+		    free = stackFree[depth];
+		    letters = stackLetters[depth];
+		    next = stackNext[depth];
+		    child = stackChild[depth];
+		    childWord = stackChildWord[depth];
+		    continue;
+		}
+		//the next letter the lexicon allows that a free neighbor shows
+		int c = Integer.numberOfTrailingZeros(letters);
+		letters &= letters - 1;
+		next = free & letterMask[c];
+		if (next != 0) {
+		    int edge = edge(node, c);
+		    child = graph[edge];
+		    childWord = word + graph[edge + 1];
+		}
+	    }
+
+	    int t = Long.numberOfTrailingZeros(next);
+	    next &= next - 1;
+	    int tNode = child, tWord = childWord;
+	    if (tileFace[t].length > 1) {
+		tNode = followTail(t, child, childWord);
+		if (tNode < 0)
+		    continue;
+		tWord = tailWord;
+	    }
+	    nodesPruned--;
+
+	    long tVisited = visited | (1L << t);
+	    int tLength = addIfWord(t, tNode, tWord, length, depth + 1);
+	    long tFree = neighborMask[t] & ~tVisited;
+	    int tLetters = graph[tNode] & boardLetters;
+	    nodesPruned += Long.bitCount(tFree);
+	    if (tLetters == 0 || tFree == 0)
+		continue;   //the path can't go on from t, so t needn't go on the stack
+
+	    stackNode[depth] = node;
+	    stackWord[depth] = word;
+	    stackLength[depth] = length;
+	    stackVisited[depth] = visited;
+	    stackFree[depth] = free;
+	    stackLetters[depth] = letters;
+	    stackNext[depth] = next;
+	    stackChild[depth] = child;
+	    stackChildWord[depth] = childWord;
+	    depth++;
+
+	    node = tNode;
+	    word = tWord;
+	    visited = tVisited;
+	    length = tLength;
+	    free = tFree;
+	    letters = tLetters;
+	    next = 0;
+	}
+    }
+
+
+    /*
+     * Same as search, for boards of more than 64 tiles.  The tiles on
+     * the path are marked in wideVisited, and unmarked as the search
+     * backs up.  An entry tries a letter over the longs of the tile's
+     * neighbor mask in turn (span), then the next letter.
+     */
+    private void searchWide(int start, int node, int word) {
+	int depth = 0;
+	int tile = start;
+	int length = enterWide(tile, node, word, 0, 0);
+	int letters = graph[node] & boardLetters;
+	int letter = 0, span = lastWord[tile];   //so the first letter is picked next
+	long next = 0;
+	int child = -1, childWord = 0;           //child is -1 until looked up
+
+	while (true) {
+	    if (next == 0) {
+		if (span < lastWord[tile]) {
+		    //the letter on the next long of neighbors
+		    span++;
+		    next = wideNeighbors[tile * words + span] & wideLetters[letter * words + span]
+			& ~wideVisited[span];
+		}
+		else if (letters != 0) {
+		    letter = Integer.numberOfTrailingZeros(letters);
+		    letters &= letters - 1;
+		    child = -1;
+		    span = firstWord[tile] - 1;
+		}
+		else {
+		    wideVisited[tile / WORD_BITS] &= ~(1L << (tile % WORD_BITS));
+		    if (depth == 0)
+			return;
+		    depth--;   //nothing more from here; back up
+		    tile = searchTiles[depth];
+		    node = stackNode[depth];
+		    word = stackWord[depth];
+		    length = stackLength[depth];
+		    letters = stackLetters[depth];
+		    letter = stackLetter[depth];
+		    span = stackSpan[depth];
+		    next = stackNext[depth];
+		    child = stackChild[depth];
+		    childWord = stackChildWord[depth];
+		}
+		continue;
+	    }
+
+	    int bit = Long.numberOfTrailingZeros(next);
+	    next &= next - 1;
+	    if (child < 0) {
+		int edge = edge(node, letter);
+		child = graph[edge];
+		childWord = word + graph[edge + 1];
+	    }
+	    int t = span * WORD_BITS + bit;
+	    int tNode = child, tWord = childWord;
+	    if (tileFace[t].length > 1) {
+		tNode = followTail(t, child, childWord);
+		if (tNode < 0)
+		    continue;
+		tWord = tailWord;
+	    }
+	    nodesPruned--;
+
+	    stackNode[depth] = node;
+	    stackWord[depth] = word;
+	    stackLength[depth] = length;
+	    stackLetters[depth] = letters;
+	    stackLetter[depth] = letter;
+	    stackSpan[depth] = span;
+	    stackNext[depth] = next;
+	    stackChild[depth] = child;
+	    stackChildWord[depth] = childWord;
+	    depth++;
+
+	    tile = t;
+	    node = tNode;
+	    word = tWord;
+	    length = enterWide(tile, node, word, length, depth);
+	    letters = graph[node] & boardLetters;
+	    span = lastWord[tile];
+	    next = 0;
+	    child = -1;
+	}
+    }
+
+
+    /*
+     * Marks tile visited and puts it at the end of the path.
+     * @return the letters spelled with it
+     */
+    private int enterWide(int tile, int node, int word, int length, int depth) {
+	wideVisited[tile / WORD_BITS] |= 1L << (tile % WORD_BITS);
+	int neighborBase = tile * words;
+	for (int w = firstWord[tile]; w <= lastWord[tile]; w++)
+	    nodesPruned += Long.bitCount(wideNeighbors[neighborBase + w] & ~wideVisited[w]);
+	return addIfWord(tile, node, word, length, depth);
+    }
+}
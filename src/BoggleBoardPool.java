@@ -0,0 +1,458 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+
+/**
+ * A pool of random boards that are solved before anyone asks for them.
+ * A background thread rolls boards with a BoggleDice, solves each one
+ * and keeps it, until the pool holds as many boards as it may.  take()
+ * then hands out a board with its words and paths at once; a game
+ * started from the pool never waits for a solve.
+ *
+ * A filter can keep out boards that are too poor (fewer words than
+ * asked for) or too rich (more points than asked for).  Boards it
+ * throws away are rolled again, up to DEAL_TRIES times for one board.
+ *
+ * The pool can be saved to a file and loaded again, so a server starts
+ * with ready boards.  A pool file holds, big endian:
+ *
+ *     MAGIC, VERSION, rows, cols, minWordLength,
+ *     lexicon word count, lexicon checksum (long), boardCount,
+ *     then per board: the face of each tile (writeUTF), solve time in
+ *     nanoseconds, word count, and per word its path length and tiles
+ *
+ * Path lengths and tiles take a byte each on boards of up to 256 tiles,
+ * two bytes on boards of up to 65536 and four on bigger ones.  Words
+ * aren't stored: a word is the faces along its path, so it is read back
+ * from the board.  That is only right for the lexicon the boards were
+ * solved with, so a pool file is only loaded into a pool whose lexicon
+ * has the same word count and checksum (BoggleLexicon.getChecksum).
+ *
+ * Usage (fills a pool file):
+ * java BoggleBoardPool [ -w wordfile ] [ -r rows ] [ -c columns ]
+ *                      [ -m minwordlength ] [ -n boards ]
+ *                      [ -minwords words ] [ -maxscore points ] poolfile
+ * @see BoggleDice
+ * @see BoggleSolver
+ */
+public class BoggleBoardPool {
+
+    //Pool file layout
+    private static final int MAGIC = 0x42474c50;  //"BGLP"
+    private static final int VERSION = 2;
+
+    //Boards deal() rolls for one that passes the filter before giving up
+    public static final int DEAL_TRIES = 10000;
+
+    private static final String USAGE =
+	"Usage: java BoggleBoardPool [ -w wordfile ] [ -r rows ] [ -c columns ]"
+	+ " [ -m minwordlength ] [ -n boards ] [ -minwords words ]"
+	+ " [ -maxscore points ] poolfile";
+
+    //vars
+    private final BoggleLexicon lexicon;
+    private final int rows, cols, minWordLength;
+    private final BlockingQueue<PooledBoard> boards;
+    private BoggleDice dice = new BoggleDice();  //Guarded by this
+    private volatile int minWords = 0;
+    private volatile int maxScore = Integer.MAX_VALUE;
+    private volatile long solved, rejected;
+    private Thread filler;
+
+
+    /**
+     * A board in the pool with its solution and what it took to solve.
+     */
+    public static class PooledBoard {
+	private final String[] letters;
+	private final BoggleSolution solution;
+	private final int score;
+	private final long solveNanos;
+
+	PooledBoard(String[] letters, BoggleSolution solution, int score, long solveNanos) {
+	    this.letters = letters;
+	    this.solution = solution;
+	    this.score = score;
+	    this.solveNanos = solveNanos;
+	}
+
+	/**
+	 * @return the letters of the board, row by row
+	 */
+	public String[] getLetters() {
+	    return letters;
+	}
+
+	/**
+	 * @return every word on the board with its path
+	 */
+	public BoggleSolution getSolution() {
+	    return solution;
+	}
+
+	public int getWordCount() {
+	    return solution.size();
+	}
+
+	/**
+	 * @return the points for all the words on the board
+	 */
+	public int getScore() {
+	    return score;
+	}
+
+	/**
+	 * @return how long the solve took, in nanoseconds
+	 */
+	public long getSolveNanos() {
+	    return solveNanos;
+	}
+    }
+
+
+    /**
+     * Makes an empty pool; call start() to have it filled.
+     * @param lexicon   the lexicon boards are solved against
+     * @param r   number of rows
+     * @param c   number of columns
+     * @param minLength   the minimum size of a legal word
+     * @param capacity   most boards kept ready
+     */
+    public BoggleBoardPool(BoggleLexicon lexicon, int r, int c, int minLength, int capacity) {
+	this.lexicon = lexicon;
+	rows = r;
+	cols = c;
+	minWordLength = minLength;
+	boards = new ArrayBlockingQueue<PooledBoard>(Math.max(1, capacity));
+    }
+
+
+    /**
+     * Rolls boards with another bag of dice, e.g. a seeded one.
+     */
+    public synchronized void setDice(BoggleDice bag) {
+	dice = bag;
+    }
+
+
+    /**
+     * Keeps only boards with at least minWords words and at most
+     * maxScore points.  Boards already in the pool stay.
+     * @param minWords   fewest words, 0 for any
+     * @param maxScore   most points, Integer.MAX_VALUE for any
+     */
+    public void setFilter(int minWords, int maxScore) {
+	this.minWords = minWords;
+	this.maxScore = maxScore;
+    }
+
+
+    /**
+     * Starts the background thread that keeps the pool full.
+     */
+    public synchronized void start() {
+	if (filler != null)
+	    return;
+	filler = new Thread(new Runnable() {
+		public void run() {
+		    BoggleSolver solver = new BoggleSolver(lexicon);
+		    try {
+			while (!Thread.currentThread().isInterrupted()) {
+			    PooledBoard board = deal(solver);
+			    if (board != null)
+				boards.put(board);
+			}
+		    }
+		    catch (InterruptedException e) {
+			//stopped
+		    }
+		}}, "boggle-board-pool");
+	filler.setDaemon(true);
+	filler.setPriority(Thread.MIN_PRIORITY);
+	filler.start();
+    }
+
+
+    /**
+     * Stops filling the pool.  The boards in it can still be taken.
+     */
+    public synchronized void stop() {
+	if (filler != null) {
+	    filler.interrupt();
+	    filler = null;
+	}
+    }
+
+
+    /**
+     * Hands out a ready board.  When the pool is empty, a board is
+     * rolled and solved right away instead, on the caller's thread.
+     * @return a board that passes the filter, with its solution
+     * @throws IllegalStateException if no board passed the filter in
+     * DEAL_TRIES rolls, or the thread was interrupted
+     */
+    public PooledBoard take() {
+	PooledBoard board = boards.poll();
+	if (board == null)
+	    board = deal(new BoggleSolver(lexicon));
+	if (board == null)
+	    throw new IllegalStateException("take(): no board passed the filter");
+	return board;
+    }
+
+
+    /**
+     * @return a ready board, or null when the pool is empty
+     */
+    public PooledBoard poll() {
+	return boards.poll();
+    }
+
+
+    /**
+     * @return number of boards ready
+     */
+    public int size() {
+	return boards.size();
+    }
+
+
+    /**
+     * @return boards solved so far, kept or not
+     */
+    public long getBoardsSolved() {
+	return solved;
+    }
+
+
+    /**
+     * @return boards solved so far that the filter threw away
+     */
+    public long getBoardsRejected() {
+	return rejected;
+    }
+
+
+    /*
+     * Rolls and solves boards until one passes the filter.
+     * @return the board, or null after DEAL_TRIES boards that didn't,
+     * or once the thread is interrupted
+     */
+    private PooledBoard deal(BoggleSolver solver) {
+	for (int tries = 0; tries < DEAL_TRIES; tries++) {
+	    if (Thread.currentThread().isInterrupted())
+		return null;
+	    String[] letters;
+	    synchronized (this) {
+		letters = dice.getRandomBoard(rows, cols);
+	    }
+	    BoggleSolution solution = new BoggleSolution();
+	    long begin = System.nanoTime();
+	    solver.setBoard(letters, rows, cols);
+	    solver.solve(minWordLength, solution);
+	    long nanos = System.nanoTime() - begin;
+
+	    int score = solution.getScore(minWordLength);
+	    synchronized (this) {
+		solved++;
+		if (passes(solution.size(), score))
+		    return new PooledBoard(letters, solution, score, nanos);
+		rejected++;
+	    }
+	}
+	return null;
+    }
+
+
+    private boolean passes(int words, int score) {
+	return words >= minWords && score <= maxScore;
+    }
+
+
+    /**
+     * Writes the boards now in the pool, which stay in it.
+     * @param filename   the file to create or replace
+     */
+    public void save(String filename) throws IOException {
+	PooledBoard[] ready = boards.toArray(new PooledBoard[0]);
+	DataOutputStream out = new DataOutputStream(
+	    new BufferedOutputStream(new FileOutputStream(filename)));
+	try {
+	    out.writeInt(MAGIC);
+	    out.writeInt(VERSION);
+	    out.writeInt(rows);
+	    out.writeInt(cols);
+	    out.writeInt(minWordLength);
+	    out.writeInt(lexicon.size());
+	    out.writeLong(lexicon.getChecksum());
+	    out.writeInt(ready.length);
+	    for (PooledBoard board : ready) {
+		for (String face : board.letters)
+		    out.writeUTF(face);
+		out.writeLong(board.solveNanos);
+		BoggleSolution solution = board.solution;
+		out.writeInt(solution.size());
+		for (int i = 0; i < solution.size(); i++) {
+		    int length = solution.getPathLength(i);
+		    writeTile(out, length - 1);
+		    for (int k = 0; k < length; k++)
+			writeTile(out, solution.getPathTile(i, k));
+		}
+	    }
+	}
+	finally {
+	    out.close();
+	}
+    }
+
+
+    /**
+     * Adds the boards of a pool file, as far as there is room and they
+     * pass the filter.
+     * @param filename   a file written by save()
+     * @return number of boards added
+     * @throws IOException if the file can't be read, isn't a pool file,
+     * is for another board size, minimum word length or lexicon, or
+     * is corrupt
+     */
+    public int load(String filename) throws IOException {
+	DataInputStream in = new DataInputStream(
+	    new BufferedInputStream(new FileInputStream(filename)));
+	try {
+	    if (in.readInt() != MAGIC)
+		throw new IOException(filename + " is not a board pool");
+	    int version = in.readInt();
+	    if (version != VERSION)
+		throw new IOException("board pool version " + version + ", expected " + VERSION);
+	    int r = in.readInt(), c = in.readInt(), min = in.readInt();
+	    if (r != rows || c != cols || min != minWordLength)
+		throw new IOException(filename + " holds " + r + "x" + c + " boards with words of "
+				      + min + " or more letters");
+	    int lexiconWords = in.readInt();
+	    long lexiconChecksum = in.readLong();
+	    if (lexiconWords != lexicon.size() || lexiconChecksum != lexicon.getChecksum())
+		throw new IOException(filename + " was solved with another lexicon ("
+				      + lexiconWords + " words)");
+
+	    int tiles = rows * cols;
+	    int count = in.readInt();
+	    int added = 0;
+	    StringBuilder word = new StringBuilder();
+	    int[] path = new int[rows * cols];
+	    for (int b = 0; b < count; b++) {
+		String[] letters = new String[rows * cols];
+		for (int t = 0; t < letters.length; t++)
+		    letters[t] = in.readUTF();
+		long nanos = in.readLong();
+
+		BoggleSolution solution = new BoggleSolution();
+		int words = in.readInt();
+		for (int i = 0; i < words; i++) {
+		    int length = readTile(in) + 1;
+		    if (length > tiles)
+			throw new IOException(filename + " is corrupt: path of " + length + " tiles");
+		    word.setLength(0);
+		    for (int k = 0; k < length; k++) {
+			path[k] = readTile(in);
+			if (path[k] >= tiles)
+			    throw new IOException(filename + " is corrupt: tile " + path[k]);
+			word.append(letters[path[k]].toLowerCase());
+		    }
+		    solution.add(word.toString(), path, length);
+		}
+
+		int score = solution.getScore(minWordLength);
+		if (passes(words, score)
+		    && boards.offer(new PooledBoard(letters, solution, score, nanos)))
+		    added++;
+	    }
+	    return added;
+	}
+	finally {
+	    in.close();
+	}
+    }
+
+
+    /*
+     * A number below the board's tile count, in as few bytes as every
+     * such number fits in.
+     */
+    private void writeTile(DataOutputStream out, int tile) throws IOException {
+	int tiles = rows * cols;
+	if (tiles <= 256)
+	    out.writeByte(tile);
+	else if (tiles <= 65536)
+	    out.writeShort(tile);
+	else
+	    out.writeInt(tile);
+    }
+
+
+    private int readTile(DataInputStream in) throws IOException {
+	int tiles = rows * cols;
+	if (tiles <= 256)
+	    return in.readUnsignedByte();
+	if (tiles <= 65536)
+	    return in.readUnsignedShort();
+	int tile = in.readInt();
+	return (tile < 0) ? Integer.MAX_VALUE : tile;   //turned down as corrupt
+    }
+
+
+    public static void main(String args[]) throws IOException {
+	String wordFile = "enable1.txt", poolFile = null;
+	int r = 4, c = 0, minWordLength = 4, count = 1000;
+	int minWords = 0, maxScore = Integer.MAX_VALUE;
+
+	try {
+	    for (int i = 0; i < args.length; i++) {
+		String arg = args[i];
+		if (arg.equals("-w")) wordFile = args[++i];
+		else if (arg.equals("-r")) r = Integer.parseInt(args[++i]);
+		else if (arg.equals("-c")) c = Integer.parseInt(args[++i]);
+		else if (arg.equals("-m")) minWordLength = Integer.parseInt(args[++i]);
+		else if (arg.equals("-n")) count = Integer.parseInt(args[++i]);
+		else if (arg.equals("-minwords")) minWords = Integer.parseInt(args[++i]);
+		else if (arg.equals("-maxscore")) maxScore = Integer.parseInt(args[++i]);
+		else if (poolFile == null && !arg.startsWith("-")) poolFile = arg;
+		else throw new IllegalArgumentException("unknown option " + arg);
+	    }
+	    if (poolFile == null)
+		throw new IllegalArgumentException("no pool file");
+	}
+	catch (RuntimeException e) {
+	    System.err.println(USAGE);
+	    System.exit(1);
+	}
+	if (c == 0) c = r;
+
+	BoggleBoardPool pool;
+	try {
+	    pool = new BoggleBoardPool(BoggleLexicon.open(wordFile, minWordLength),
+				       r, c, minWordLength, count);
+	}
+	catch (FileNotFoundException e) {
+	    System.err.println("Unable to find word list file " + wordFile);
+	    System.exit(1);
+	    return;
+	}
+	pool.setFilter(minWords, maxScore);
+
+	long begin = System.nanoTime();
+	pool.start();
+	while (pool.size() < count) {
+	    try {
+		Thread.sleep(50);
+	    }
+	    catch (InterruptedException e) {
+		break;
+	    }
+	}
+	pool.stop();
+	pool.save(poolFile);
+	System.err.printf("Wrote %d boards to %s; solved %d, rejected %d, in %.1f s.%n",
+			  pool.size(), poolFile, pool.getBoardsSolved(), pool.getBoardsRejected(),
+			  (System.nanoTime() - begin) / 1e9);
+    }
+}
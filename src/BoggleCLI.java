@@ -0,0 +1,148 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Solves Boggle boards from the command line, without the GUI.  Boards
+ * are given as arguments, or read from standard input one per line
+ * when there are none.  A board is written row by row, either as
+ * letters ("ABCDEFGHIJKLMNOP", where QU is a single Qu tile) or as
+ * tiles separated by commas; the word "random" rolls a board from the
+ * dice bag instead.
+ *
+ * For each board one line is printed, with tabs between the board,
+ * the number of words, the total score and the words themselves.
+ *
+ * Usage:
+ * java BoggleCLI [ -w wordfile ] [ -r rows ] [ -c columns ]
+ *                [ -m minwordlength ] [ -s seed ] [ board ... ]
+ * Rows and columns default to a square board of the right size.
+ * @see BogglePlayer
+ */
+public class BoggleCLI {
+
+    private static final String USAGE =
+	"Usage: java BoggleCLI [ -w wordfile ] [ -r rows ] [ -c columns ]"
+	+ " [ -m minwordlength ] [ -s seed ] [ board ... ]";
+
+    //vars
+    private String wordFile = "enable1.txt";
+    private int rows = 0, cols = 0;    //0 means work it out from the board
+    private int minWordLength = 4;
+    private BoggleDice dice = new BoggleDice();
+    private Map<String, BogglePlayer> players = new HashMap<String, BogglePlayer>();
+    private BoggleLexicon lexicon;
+
+
+    /**
+     * Solves one board and prints its line.
+     * @param text   the board as written on the command line
+     * @param out   where to print
+     */
+    public void solve(String text, PrintStream out) throws IOException {
+	String[] letters;
+	int r = rows, c = cols;
+
+	if (text.trim().equalsIgnoreCase("random")) {
+	    if (r == 0) r = 4;
+	    if (c == 0) c = r;
+	    letters = dice.getRandomBoard(r, c);
+	}
+	else {
+	    letters = BoggleDice.parseBoard(text);
+	    if (r == 0 && c == 0) {
+		r = c = (int)Math.round(Math.sqrt(letters.length));
+	    }
+	    else if (r == 0) {
+		r = letters.length / c;
+	    }
+	    else if (c == 0) {
+		c = letters.length / r;
+	    }
+	    if (r * c != letters.length)
+		throw new IllegalArgumentException(text + ": " + letters.length
+						   + " tiles is not a " + r + "x" + c + " board");
+	}
+
+	BogglePlayer player = getPlayer(r, c);
+	player.setBoard(letters);
+	List<String> words = new ArrayList<String>(player.getAllValidWords(minWordLength));
+	Collections.sort(words);
+
+	int score = 0;
+	StringBuilder line = new StringBuilder();
+	for (String letter : letters)
+	    line.append(letter);
+	line.append('\t').append(words.size());
+	for (String word : words)
+	    score += BogglePlayer.pointsForWord(word, minWordLength);
+	line.append('\t').append(score).append('\t');
+	for (int i = 0; i < words.size(); i++) {
+	    if (i > 0) line.append(' ');
+	    line.append(words.get(i));
+	}
+	out.println(line);
+    }
+
+
+    /*
+     * One player per board size, all sharing the lexicon loaded once.
+     */
+    private BogglePlayer getPlayer(int r, int c) throws IOException {
+	String size = r + "x" + c;
+	BogglePlayer player = players.get(size);
+	if (player == null) {
+	    if (lexicon == null)
+		lexicon = BoggleLexicon.open(wordFile, minWordLength);
+	    player = new BogglePlayer(minWordLength, r, c);
+	    player.setLexicon(lexicon);
+	    players.put(size, player);
+	}
+	return player;
+    }
+
+
+    public static void main(String args[]) throws IOException {
+	BoggleCLI cli = new BoggleCLI();
+	List<String> boards = new ArrayList<String>();
+
+	try {
+	    for (int i = 0; i < args.length; i++) {
+		String arg = args[i];
+		if (arg.equals("-w")) cli.wordFile = args[++i];
+		else if (arg.equals("-r")) cli.rows = Integer.parseInt(args[++i]);
+		else if (arg.equals("-c")) cli.cols = Integer.parseInt(args[++i]);
+		else if (arg.equals("-m")) cli.minWordLength = Integer.parseInt(args[++i]);
+		else if (arg.equals("-s")) cli.dice = new BoggleDice(Long.parseLong(args[++i]));
+		else if (arg.startsWith("-")) throw new IllegalArgumentException("unknown option " + arg);
+		else boards.add(arg);
+	    }
+	}
+	catch (RuntimeException e) {
+	    System.err.println(USAGE);
+	    System.exit(1);
+	}
+
+	try {
+	    if (!boards.isEmpty()) {
+		for (String board : boards)
+		    cli.solve(board, System.out);
+	    }
+	    else {
+		BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		while ((line = input.readLine()) != null) {
+		    if (line.trim().length() > 0 && !line.startsWith("#"))
+			cli.solve(line, System.out);
+		}
+	    }
+	}
+	catch (IllegalArgumentException e) {
+	    System.err.println(e.getMessage());
+	    System.exit(1);
+	}
+	catch (FileNotFoundException e) {
+	    System.err.println("Unable to find word list file " + cli.wordFile);
+	    System.exit(1);
+	}
+    }
+}
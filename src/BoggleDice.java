@@ -0,0 +1,160 @@
+import java.util.*;
+
+/**
+ * The bag of dice random boards are drawn from.  By default it holds
+ * the 16 "official" Boggle dice for the 4X4 game; bigger boards reuse
+ * the bag, shaking it again every 16 tiles.  Nothing here needs AWT,
+ * so servers can draw boards without the GUI.
+ *
+ * A BoggleDice is not thread safe, since drawing a board shuffles the
+ * bag; give each thread its own.
+ * @see BoggleGUI
+ */
+public class BoggleDice {
+
+    //The faces of the official dice
+    private static final String[][] OFFICIAL_DICE = {
+	{ "A", "O", "B", "B", "O", "J" },
+	{ "W", "H", "G", "E", "E", "N" },
+	{ "N", "R", "N", "Z", "H", "L" },
+	{ "N", "A", "E", "A", "G", "E" },
+	{ "D", "I", "Y", "S", "T", "T" },
+	{ "I", "E", "S", "T", "S", "O" },
+	{ "A", "O", "T", "T", "W", "O" },
+	{ "H", "Qu", "U", "M", "N", "I" },
+	{ "R", "Y", "T", "L", "T", "E" },
+	{ "P", "O", "H", "C", "S", "A" },
+	{ "L", "R", "E", "V", "Y", "D" },
+	{ "E", "X", "L", "D", "I", "R" },
+	{ "I", "E", "N", "S", "U", "E" },
+	{ "S", "F", "F", "K", "A", "P" },
+	{ "I", "O", "T", "M", "U", "C" },
+	{ "E", "H", "W", "V", "T", "R" }
+    };
+
+    //vars
+    private Vector<Die> diceBag;
+    private Random randomizer;
+
+
+    /**
+     * A bag of the official dice.
+     */
+    public BoggleDice() {
+	this(OFFICIAL_DICE, new Random());
+    }
+
+
+    /**
+     * A bag of the official dice that always rolls the same sequence of
+     * boards for the same seed.
+     */
+    public BoggleDice(long seed) {
+	this(OFFICIAL_DICE, new Random(seed));
+    }
+
+
+    /**
+     * A bag of custom dice.
+     * @param faces   the faces of each die
+     * @param randomizer   used for shaking and rolling
+     */
+    public BoggleDice(String[][] faces, Random randomizer) {
+	this.randomizer = randomizer;
+	diceBag = new Vector<Die>(faces.length);
+	for (String[] sides : faces)
+	    diceBag.add(new Die(sides));
+    }
+
+
+    /**
+     * Return an array of Strings showing the sequence of faces on
+     * a randomly generated board.
+     * @param rows   number of rows
+     * @param cols   number of columns
+     * @return array of strings representing the letters on the board,
+     * row by row
+     */
+    public String[] getRandomBoard(int rows, int cols) {
+	int diceBagSize = diceBag.size();
+	int boardSize = rows * cols;
+	String[] letterList = new String[boardSize];
+	// we try to handle any size board with a fixed diceBag
+	for (int i = 0; i < boardSize; i++) {
+	    if (i % diceBagSize == 0) Collections.shuffle(diceBag, randomizer);
+	    Die d = diceBag.elementAt(i % diceBagSize);
+	    letterList[i] = d.getRandomFace(randomizer);
+	}
+	return letterList;
+    }
+
+
+    /**
+     * @return the faces of every die in the bag, one array per die
+     */
+    public String[][] getFaces() {
+	String[][] faces = new String[diceBag.size()][];
+	for (int i = 0; i < faces.length; i++)
+	    faces[i] = diceBag.elementAt(i).sides.clone();
+	return faces;
+    }
+
+
+    /**
+     * Turns a board written as text into its tiles.  Tiles may be
+     * separated by commas or spaces ("A,B,Qu,D"); otherwise each letter
+     * is a tile, except that a Q followed by a U makes one "Qu" tile
+     * ("ABQUD").
+     * @param text   the board, row by row
+     * @return the tiles
+     */
+    public static String[] parseBoard(String text) {
+	text = text.trim();
+	if (text.indexOf(',') >= 0 || text.indexOf(' ') >= 0 || text.indexOf('\t') >= 0)
+	    return text.split("[,\\s]+");
+
+	List<String> tiles = new ArrayList<String>();
+	for (int i = 0; i < text.length(); i++) {
+	    char c = Character.toUpperCase(text.charAt(i));
+	    if (c == 'Q' && i + 1 < text.length()
+		&& Character.toUpperCase(text.charAt(i + 1)) == 'U') {
+		tiles.add("Qu");
+		i++;
+	    }
+	    else {
+		tiles.add(String.valueOf(c));
+	    }
+	}
+	return tiles.toArray(new String[tiles.size()]);
+    }
+
+
+    /**
+        Helper class used to represent dice.
+     */
+    static class Die {
+	private String[] sides;
+	private int currentSideUp;
+
+	public Die(String[] sides) {
+	    this.sides = sides.clone();
+	}
+
+	/**
+	 * Given the state of the die, retrieves the letter on top.
+	 * @return String the letter
+	 */
+	public String getLetter() {
+	    return sides[currentSideUp];
+	}
+
+	/**
+	 * Picks a side of the die at random and returns the letter.
+	 * @return String the letter chosen.
+	 */
+	public String getRandomFace(Random randomizer) {
+	    currentSideUp = randomizer.nextInt(sides.length);
+	    return sides[currentSideUp];
+	}
+    }
+}
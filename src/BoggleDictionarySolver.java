@@ -0,0 +1,203 @@
+import java.util.*;
+
+/**
+ * A solver that starts from the dictionary instead of the board.  Every
+ * word of the lexicon is first checked against the board's letters:
+ * a word that needs a letter the board doesn't have, or needs it more
+ * often than the board has it, can't be on the board.  Only the words
+ * left over are looked for with BoggleSolver.findPath.
+ *
+ * The check is cheap because each word's letters are summed up once,
+ * when the solver is made: a mask of the letters it uses and a mask of
+ * the letters it uses more than once.  Most words fail on the masks
+ * alone; the letters are only counted for the rest.  A tile such as
+ * "Qu" adds all its letters to the board's counts, so the check never
+ * throws away a word that is on the board.
+ *
+ * On a board with few different letters almost nothing survives the
+ * check, while a depth first search has to walk a huge number of paths;
+ * there this solver is much faster.  On an ordinary board the search is.
+ * @see BogglePlayer
+ * @see BoggleSolver
+ */
+public class BoggleDictionarySolver {
+
+    //vars
+    private BoggleLexicon lexicon;
+    private BoggleSolver pathFinder;   //Checks the words that survive
+    private int wordCount;
+    private char[] text;         //Every word, one after another, in lexicon order
+    private int[] wordStart;     //Word i is text[wordStart[i]..wordStart[i+1])
+    private int[] wordMask;      //Bit c set when word i uses letter c
+    private int[] repeatMask;    //Bit c set when word i uses letter c twice or more
+
+    private int[] boardCount = new int[BoggleLexicon.ALPHABET]; //Times each letter is on the board
+    private int boardMask;       //Letters on the board
+    private int boardRepeats;    //Letters on the board at least twice
+    private int[] count = new int[BoggleLexicon.ALPHABET]; //Scratch for counting a word's letters
+
+
+    /**
+     * Makes the solver, summing up the letters of every word in the
+     * lexicon.  This takes a pass over the whole lexicon, so keep the
+     * solver rather than making one per board.
+     */
+    public BoggleDictionarySolver(BoggleLexicon lexicon) {
+	this.lexicon = lexicon;
+	pathFinder = new BoggleSolver(lexicon);
+	wordCount = lexicon.size();
+	wordStart = new int[wordCount + 1];
+	wordMask = new int[wordCount];
+	repeatMask = new int[wordCount];
+	text = new char[1024];
+
+	int[] nodes = new int[64];
+	int[] nextLetter = new int[64];
+	char[] prefix = new char[64];
+	int depth = 0, words = 0, length = 0;
+
+	//depth first walk of the lexicon, which meets the words in order
+	nodes[0] = lexicon.getRoot();
+	nextLetter[0] = 0;
+	if (lexicon.isWord(nodes[0]))
+	    wordStart[++words] = length;
+	while (depth >= 0) {
+	    int node = nodes[depth];
+	    int letters = lexicon.getChildMask(node) >>> nextLetter[depth];
+	    if (letters == 0) {
+		depth--;
+		continue;
+	    }
+	    int letter = nextLetter[depth] + Integer.numberOfTrailingZeros(letters);
+	    nextLetter[depth] = letter + 1;
+
+	    if (depth + 1 == nodes.length) {
+		nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+		nextLetter = Arrays.copyOf(nextLetter, nodes.length);
+		prefix = Arrays.copyOf(prefix, nodes.length);
+	    }
+	    prefix[depth] = (char)('a' + letter);
+	    nodes[++depth] = lexicon.getChild(node, letter);
+	    nextLetter[depth] = 0;
+
+	    if (lexicon.isWord(nodes[depth])) {
+		if (length + depth > text.length)
+		    text = Arrays.copyOf(text, Math.max(2 * text.length, length + depth));
+		System.arraycopy(prefix, 0, text, length, depth);
+		summarize(words, prefix, depth);
+		length += depth;
+		wordStart[++words] = length;
+	    }
+	}
+	text = Arrays.copyOf(text, length);
+    }
+
+
+    /*
+     * Fills in the masks of word i.
+     */
+    private void summarize(int i, char[] word, int length) {
+	int mask = 0, repeats = 0;
+	for (int k = 0; k < length; k++) {
+	    int bit = 1 << (word[k] - 'a');
+	    repeats |= mask & bit;
+	    mask |= bit;
+	}
+	wordMask[i] = mask;
+	repeatMask[i] = repeats;
+    }
+
+
+    /**
+     * Sets up the board for the next solves.  Tiles are given row by
+     * row.
+     * @param letterArray   the letters that make up the board
+     * @param r   number of rows
+     * @param c   number of columns
+     */
+    public void setBoard(String[] letterArray, int r, int c) {
+	pathFinder.setBoard(letterArray, r, c);
+
+	Arrays.fill(boardCount, 0);
+	boardMask = 0;
+	boardRepeats = 0;
+	for (String face : letterArray) {
+	    for (int k = 0; k < face.length(); k++) {
+		int letter = BoggleLexicon.letterIndex(face.charAt(k));
+		if (letter < 0)
+		    continue;
+		boardCount[letter]++;
+		if (boardCount[letter] > 1)
+		    boardRepeats |= 1 << letter;
+		boardMask |= 1 << letter;
+	    }
+	}
+    }
+
+
+    /**
+     * Counts the words that pass the masks for the current board, which
+     * is what a solve has to look at more closely.  Cheap: one pass
+     * over two int arrays, which stops early once limit is reached.
+     * @param minimumWordLength   the minimum size of a legal word
+     * @param limit   stop counting here
+     * @return the number of words solve would count the letters of, at
+     * most limit
+     */
+    public int countCandidates(int minimumWordLength, int limit) {
+	int missing = ~boardMask;
+	int once = ~boardRepeats;
+	int candidates = 0;
+	for (int i = 0; i < wordCount && candidates < limit; i++) {
+	    if ((wordMask[i] & missing) == 0 && (repeatMask[i] & once) == 0
+		    && wordStart[i + 1] - wordStart[i] >= minimumWordLength)
+		candidates++;
+	}
+	return candidates;
+    }
+
+
+    /**
+     * Finds every word on the board that is in the lexicon and at
+     * least the minimum length, in lexicon order, each with a path.
+     * @param minimumWordLength   the minimum size of a legal word
+     * @param out   where to put the words found
+     */
+    public void solve(int minimumWordLength, BoggleSolution out) {
+	int missing = ~boardMask;
+	int once = ~boardRepeats;
+
+	for (int i = 0; i < wordCount; i++) {
+	    if ((wordMask[i] & missing) != 0 || (repeatMask[i] & once) != 0)
+		continue;
+	    int start = wordStart[i], end = wordStart[i + 1];
+	    if (end - start < minimumWordLength || !fitsCounts(start, end))
+		continue;
+
+	    String word = new String(text, start, end - start);
+	    int[] path = pathFinder.findPath(word);
+	    if (path != null)
+		out.add(word, path, path.length);
+	}
+    }
+
+
+    /*
+     * Whether the board has every letter of text[start..end) as often
+     * as the word uses it.
+     */
+    private boolean fitsCounts(int start, int end) {
+	boolean fits = true;
+	for (int k = start; k < end; k++) {
+	    int letter = text[k] - 'a';
+	    if (++count[letter] > boardCount[letter]) {
+		fits = false;
+		end = k + 1;
+		break;
+	    }
+	}
+	for (int k = start; k < end; k++)
+	    count[text[k] - 'a'] = 0;
+	return fits;
+    }
+}
@@ -0,0 +1,124 @@
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events for the parts of the game where time goes:
+ * loading the lexicon and its phases, solving boards, and checking the
+ * words a player enters.  Start a recording (java
+ * -XX:StartFlightRecording, or jcmd JFR.start on a running server) and
+ * they show up under "Boggle" next to the JVM's own events.
+ *
+ * Each event is used the same way: made, begun, and only filled in and
+ * committed when shouldCommit() says a recording wants it.  With no
+ * recording running the event object never escapes, so the JIT drops
+ * it, and what is left is a check of a constant.
+ * @see BoggleLexicon
+ * @see BogglePlayer
+ * @see BoggleGUI
+ */
+public class BoggleEvents {
+
+    private BoggleEvents() {
+    }
+
+
+    /**
+     * Loading a lexicon from start to finish, from a word list or a
+     * compiled file.
+     */
+    @Name("boggle.LexiconLoad")
+    @Label("Lexicon Load")
+    @Category("Boggle")
+    @StackTrace(false)
+    public static class LexiconLoad extends Event {
+	@Label("Source")
+	public String source;
+
+	@Label("Words")
+	public int words;
+
+	@Label("Size")
+	@DataAmount
+	public long bytes;
+    }
+
+
+    /**
+     * One phase of loading a lexicon: "read" (the word list file),
+     * "sort" (sorting and dropping duplicates), "index" (building the
+     * word graph) or "map" (memory mapping a compiled lexicon).
+     */
+    @Name("boggle.LexiconPhase")
+    @Label("Lexicon Phase")
+    @Category("Boggle")
+    @StackTrace(false)
+    public static class LexiconPhase extends Event {
+	@Label("Phase")
+	public String phase;
+
+	@Label("Words")
+	public int words;
+    }
+
+
+    /**
+     * One getAllValidWords.
+     */
+    @Name("boggle.Solve")
+    @Label("Solve")
+    @Category("Boggle")
+    @StackTrace(false)
+    public static class Solve extends Event {
+	@Label("Rows")
+	public int rows;
+
+	@Label("Columns")
+	public int cols;
+
+	@Label("Words Found")
+	public int words;
+
+	@Label("Solver")
+	@Description("BogglePlayer.SOLVER_* mode asked for")
+	public int solverMode;
+
+	@Label("Cached")
+	@Description("The solution came from the solution cache")
+	public boolean cached;
+    }
+
+
+    /**
+     * One word entered by a player, and what became of it.
+     */
+    @Name("boggle.WordCheck")
+    @Label("Word Check")
+    @Category("Boggle")
+    @StackTrace(false)
+    public static class WordCheck extends Event {
+	@Label("Word")
+	public String word;
+
+	@Label("Outcome")
+	@Description("OK, TOO_SHORT, NOT_ON_BOARD, NOT_IN_LEXICON or DUPLICATE")
+	public String outcome;
+
+	@Label("Precomputed")
+	@Description("Answered from the board's known solution, without a search")
+	public boolean precomputed;
+    }
+
+
+    /**
+     * @return the name of a BogglePlayer.checkWord outcome
+     */
+    public static String outcomeName(int outcome) {
+	switch (outcome) {
+	case BogglePlayer.WORD_OK: return "OK";
+	case BogglePlayer.WORD_TOO_SHORT: return "TOO_SHORT";
+	case BogglePlayer.WORD_NOT_ON_BOARD: return "NOT_ON_BOARD";
+	case BogglePlayer.WORD_NOT_IN_LEXICON: return "NOT_IN_LEXICON";
+	case BogglePlayer.WORD_DUPLICATE: return "DUPLICATE";
+	default: return "UNKNOWN";
+	}
+    }
+}
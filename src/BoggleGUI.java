@@ -1,6 +1,7 @@
 import java.awt.*;
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.event.*;
 import java.util.*;
 import java.awt.event.*;
 import java.io.*;
@@ -15,9 +16,12 @@ import java.io.*;
  *
  * BoggleGUI requires class BogglePlayer, to define these instance methods:
  * <PRE>
- * public void buildLexicon(Set wordList)
+ * public void loadLexicon(String filename)
+ * public int checkWord(String wordToCheck, Collection alreadyEntered)
+ * public Vector getCheckedLocations()
  * public void setBoard(String[] letterArray)
  * public Vector getAllValidWords(int minimumWordLength)
+ * public BoggleSolution solve(int minimumWordLength)
  * public boolean isInLexicon(String wordToCheck)
  * public Vector isOnBoard(String wordToCheck)
  * public String[] getCustomBoard()
@@ -36,6 +40,7 @@ public class BoggleGUI extends JFrame {
   public static  int DICEROWS = 4;  // default 4
   public static  int DICECOLS = 4;  // default 4
   public static  int MINIMUMWORDLENGTH = 4; // default
+  private static final int BOARD_POOL_SIZE = 8;  // random boards kept solved
   
   
   private BogglePlayer computerPlayer;
@@ -43,14 +48,26 @@ public class BoggleGUI extends JFrame {
   private ScoreArea humanArea, computerArea;
   private WordEntryField wordEntryField;
   private ComputerTurnButton computerTurnButton;
+  private String[] currentBoard;  // letters of the game being played
+  private ComputerTurnWorker computerTurn;  // running computer turn, or null
+  private SpeculativeSolver speculation;  // solves currentBoard ahead of time
+  private BoggleSolution dealtSolution;  // came with currentBoard from the pool, or null
+  private BoggleBoardPool boardPool;  // random boards, solved ahead of time
+  private BoggleWordCursor wordCursor;  // follows the word being typed
         
   public BoggleGUI()  {
     super("Welcome to CS 210!");
                 
     // create a BogglePlayer computer player to use
     computerPlayer = new BogglePlayer(MINIMUMWORDLENGTH, DICEROWS, DICECOLS);
+    // Boards come back here (custom board, replays), so remember a few
+    computerPlayer.useSolutionCache(BogglePlayer.CACHE_DEFAULT);
     // Read word list from file and initialize computerPlayer's Lexicon
     initLexicon();
+    // Keep a few random boards solved and ready
+    boardPool = new BoggleBoardPool(computerPlayer.getLexicon(), DICEROWS, DICECOLS,
+                                    MINIMUMWORDLENGTH, BOARD_POOL_SIZE);
+    boardPool.start();
     // Intialize graphics panels
     initPanels();
     // Establish menu bar options and listeners for them
@@ -71,10 +88,38 @@ public class BoggleGUI extends JFrame {
    * @return void
    */
   public void newGame(String[] letterList)  {
+    newGame(letterList, null);
+  }
+
+  /**
+   * Get ready for a new game on a board from the pool, whose solution
+   * is already known.
+   * @param board a board taken from the pool
+   * @return void
+   */
+  public void newGame(BoggleBoardPool.PooledBoard board)  {
+    newGame(board.getLetters(), board.getSolution());
+  }
+
+  private void newGame(String[] letterList, BoggleSolution solution)  {
+    // Stop the last game's computer turn before its words reach this one
+    cancelComputerTurn();
+    currentBoard = letterList;
+    dealtSolution = solution;
+    // Solve the board while the human plays, unless that is done
+    // already; an older solve is thrown away
+    if (speculation != null) speculation.cancel(false);
+    speculation = null;
+    if (solution == null) {
+      speculation = new SpeculativeSolver(letterList);
+      speculation.execute();
+    }
     // Tell theBoard about the board layout
     theBoard.setBoard(letterList);
     // Tell computerPlayer about the board layout
     computerPlayer.setBoard(letterList);
+    wordCursor = new BoggleWordCursor(computerPlayer.getLexicon(), MINIMUMWORDLENGTH);
+    wordCursor.setBoard(letterList, DICEROWS, DICECOLS);
     // Prepare score areas
     humanArea.setReady();
     computerArea.setReady();
@@ -87,10 +132,6 @@ public class BoggleGUI extends JFrame {
     computerTurnButton.setReady();
     
     repaint();
-    
-   // Vector<String> words = computerPlayer.getAllValidWords(MINIMUMWORDLENGTH);
-    
-    
   }
         
   /**
@@ -110,37 +151,44 @@ public class BoggleGUI extends JFrame {
       return;
     }
 
+    BoggleEvents.WordCheck event = new BoggleEvents.WordCheck();
+    event.begin();
+
+    // a word the background solve found is long enough, on the board
+    // and in the lexicon; only a duplicate is left to check
+    BoggleSolution solution = readySolution();
+    int found = (solution == null) ? -1 : solution.indexOf(wordToCheck.toLowerCase());
+    if (found >= 0 && !humanArea.containsWord(wordToCheck)) {
+      commitWordCheck(event, wordToCheck, BogglePlayer.WORD_OK, true);
+      humanArea.addWord(wordToCheck);
+      theBoard.highlightDice(solution.getLocations(found));
+      wordEntryField.clear();
+      return;
+    }
+
     // check that word is:
     // (1) at least minimum length, (2) on the board, (3) in the lexicon,
     // (4) not already entered by the player
-    if(wordToCheck.length() <  MINIMUMWORDLENGTH)      {
+    // we just trust the computer player to check this
+    int outcome = computerPlayer.checkWord(wordToCheck, humanArea.getWords());
+    commitWordCheck(event, wordToCheck, outcome, false);
+    switch (outcome) {
+    case BogglePlayer.WORD_TOO_SHORT:
       chideUser(wordToCheck, "Less Than " + MINIMUMWORDLENGTH + " Letters");
       return;
-    }
-
-    Vector letterLocations;
-    
-    // letterLocations = theBoard.getLocationsForWord(wordToCheck);
-    // String wordOnBoard = theBoard.getWordFromLocations(letterLocations);
-    //    if(!wordToCheck.equalsIgnoreCase(wordOnBoard)) { // double check
-
-    // we just trust the computer player to check this
-    letterLocations = computerPlayer.isOnBoard(wordToCheck);
-    if(letterLocations == null) { 
+    case BogglePlayer.WORD_NOT_ON_BOARD:
       chideUser(wordToCheck, "Not On Board");
       return;
-    }
-
-    if(!computerPlayer.isInLexicon(wordToCheck))          {
+    case BogglePlayer.WORD_NOT_IN_LEXICON:
       chideUser(wordToCheck, "Not In Lexicon");
       return;
-    }
-
-    if(humanArea.containsWord(wordToCheck)) {
+    case BogglePlayer.WORD_DUPLICATE:
       chideUser(wordToCheck, "Duplicate Word");
       return;
     }
 
+    Vector letterLocations = computerPlayer.getCheckedLocations();
+
     // OK, this word passed our rigorous suite of tests.  Add it
     humanArea.addWord(wordToCheck);
     // Highlight locations on board
@@ -148,6 +196,20 @@ public class BoggleGUI extends JFrame {
     wordEntryField.clear();      //clear the wordEntryField text
   }
 
+  /*
+   * Records a word check for Flight Recorder, if a recording wants it.
+   * The time ends here, before any dialog is shown.
+   */
+  private void commitWordCheck(BoggleEvents.WordCheck event, String word,
+                               int outcome, boolean precomputed) {
+    if (event.shouldCommit()) {
+      event.word = word;
+      event.outcome = BoggleEvents.outcomeName(outcome);
+      event.precomputed = precomputed;
+      event.commit();
+    }
+  }
+
   /**
       * Print a message that the human player did something wrong.
    * @param attemptedWord  The word the human entered
@@ -164,52 +226,196 @@ public class BoggleGUI extends JFrame {
   }
 
   /**
-   * Let the computer player take its turn.
+   * Let the computer player take its turn.  Usually the board was
+   * already solved while the human played and the words show up at
+   * once.  If that solve is still going, the turn waits for it rather
+   * than solving the board a second time.  Otherwise it is solved on a
+   * background thread, and words show up in the computer's score area
+   * in batches as they are found, so the window stays responsive.
    * @param none
    * @return nothing, but highlights words computer got and computes its score
    */
   public void computerPlay() {
+    if (currentBoard == null || computerTurn != null) return;
+    computerTurnButton.setUnready();
+
+    // the board was solved in the background: nothing to wait for
+    BoggleSolution solution = readySolution();
+    if (solution != null) {
+      showComputerWords(solution);
+      return;
+    }
+
+    // still being solved in the background: its done() shows the words
+    if (speculation != null && !speculation.isDone()
+        && speculation.getLetters() == currentBoard) {
+      computerArea.setName("Thinking!");
+      speculation.setTurnWaiting();
+      return;
+    }
+
+    startComputerTurn();
+  } 
+
+
+  private void startComputerTurn() {
     computerArea.setName("Thinking!");
-    computerArea.paintImmediately(computerArea.getVisibleRect());
-    Vector<String> allWords = computerPlayer.getAllValidWords(MINIMUMWORDLENGTH);
-    Iterator allWordsIterator = allWords.iterator();
+    computerTurn = new ComputerTurnWorker(currentBoard);
+    computerTurn.execute();
+  }
+
+
+  private void showComputerWords(BoggleSolution solution) {
+    computerArea.addWords(solution.getWords());
+    theBoard.unHighlightAllDice();
+  }
+
+
+  /**
+   * Stop a computer turn that is still running; words it has not
+   * shown yet are dropped.
+   * @param none
+   * @return void
+   */
+  private void cancelComputerTurn() {
+    if (computerTurn != null) {
+      computerTurn.cancel(false);
+      computerTurn = null;
+    }
     computerArea.setName("Computer");
-    while(allWordsIterator.hasNext())     {
-      String newWord = (String) allWordsIterator.next();
-      Vector wordPath = computerPlayer.isOnBoard(newWord);
-      // Add word to appropriate score area & highlight appropriate dice
-      computerArea.addWord(newWord.toLowerCase());
-      theBoard.highlightDice(wordPath);
-      // pause for a tenth of a second
-      //try {Thread.sleep(100); }   catch (Exception e) {}
-    }
-    theBoard.unHighlightAllDice(); // leave board unhighlighted when done
-    
-   //computerPlayer.debug();  //Show debug info
-  } 
+  }
 
 
   /**
-   * Read word list from file with name WORDLISTFILENAME, and pass a Set
-   * containing those words to the computer player to intialize its lexicon.
+   * The solution the board came with from the pool, or else that of
+   * the background solve started by newGame, if it has finished and is
+   * for the board being played.
+   * @param none
+   * @return the solution, or null when it isn't ready
+   */
+  private BoggleSolution readySolution() {
+    if (dealtSolution != null) return dealtSolution;
+    if (speculation == null || !speculation.isDone() || speculation.isCancelled()
+        || speculation.getLetters() != currentBoard) return null;
+    try {
+      return speculation.get();
+    } catch (Exception e) {
+      return null;  // failed solves just fall back to searching
+    }
+  }
+
+
+  /**
+   * Solves a board in the background as soon as it is dealt, so the
+   * result is there by the time the human hands over the turn.  Like
+   * ComputerTurnWorker it has a solver of its own.  When the turn is
+   * handed over before the solve is done, done() shows the words.
+   */
+  class SpeculativeSolver extends SwingWorker<BoggleSolution, Void> {
+    private String[] letters;
+    private BoggleSolver solver;
+    private boolean turnWaiting;  // only touched on the event dispatch thread
+
+    SpeculativeSolver(String[] letters) {
+      this.letters = letters;
+      solver = new BoggleSolver(computerPlayer.getLexicon());
+    }
+
+    public String[] getLetters() {
+      return letters;
+    }
+
+    public void setTurnWaiting() {
+      turnWaiting = true;
+    }
+
+    protected BoggleSolution doInBackground() {
+      BoggleSolution solution = new BoggleSolution();
+      solver.setBoard(letters, DICEROWS, DICECOLS);
+      solver.solve(MINIMUMWORDLENGTH, solution);
+      return solution;
+    }
+
+    protected void done() {
+      if (!turnWaiting || speculation != this || isCancelled()) return;
+      computerArea.setName("Computer");
+      BoggleSolution solution = readySolution();
+      if (solution != null)
+        showComputerWords(solution);
+      else
+        startComputerTurn();  // the solve failed; search after all
+    }
+  }
+
+
+  /**
+   * Solves the board for the computer's turn off the event dispatch
+   * thread.  The search is run one starting tile at a time with a
+   * solver of its own, so it never touches the state computerPlayer
+   * uses for the human's words.  The words of each tile are published
+   * together, and Swing coalesces whatever piles up between repaints
+   * into one call of process.
+   */
+  class ComputerTurnWorker extends SwingWorker<Void, BoggleSolution> {
+    private String[] letters;
+    private BoggleSolver solver;
+
+    ComputerTurnWorker(String[] letters) {
+      this.letters = letters;
+      solver = new BoggleSolver(computerPlayer.getLexicon());
+    }
+
+    protected Void doInBackground() {
+      // one start tile at a time, so a word can come up again from a
+      // later tile; only publish it the first time
+      Set<String> seen = new HashSet<String>();
+      solver.setBoard(letters, DICEROWS, DICECOLS);
+      for (int tile = 0; tile < solver.getTileCount() && !isCancelled(); tile++) {
+        BoggleSolution found = new BoggleSolution();
+        BoggleSolution fresh = new BoggleSolution();
+        solver.solve(MINIMUMWORDLENGTH, found, tile, tile + 1);
+        for (int i = 0; i < found.size(); i++) {
+          if (seen.add(found.getWord(i))) fresh.add(found, i);
+        }
+        if (fresh.size() > 0) publish(fresh);
+      }
+      return null;
+    }
+
+    protected void process(java.util.List<BoggleSolution> batches) {
+      if (computerTurn != this) return;  // a new game has started
+      java.util.List<String> words = new ArrayList<String>();
+      BoggleSolution last = null;
+      for (BoggleSolution batch : batches) {
+        for (int i = 0; i < batch.size(); i++) words.add(batch.getWord(i));
+        last = batch;
+      }
+      computerArea.addWords(words);
+      // show where the newest word is, once per batch
+      if (last != null) theBoard.highlightDice(last.getLocations(last.size() - 1));
+    }
+
+    protected void done() {
+      if (computerTurn != this) return;
+      computerTurn = null;
+      computerArea.setName("Computer");
+      theBoard.unHighlightAllDice(); // leave board unhighlighted when done
+    }
+  }
+
+
+  /**
+   * Have the computer player load its lexicon from the file with name
+   * WORDLISTFILENAME: either a word list, or a compiled lexicon which
+   * is memory mapped (an up to date enable1.lex is used in place of
+   * enable1.txt).
    * @param none
    * @return void
    */
   private void initLexicon()  { 
-    boolean EOF = false;
-    HashSet<String> wordsFromFile = new HashSet<String>();
-    System.err.print("Reading word list from file " + WORDLISTFILENAME + "...");
+    System.err.print("Loading lexicon from " + WORDLISTFILENAME + "...");
     try      {
-      // Open File
-      BufferedReader input = new BufferedReader( new FileReader(WORDLISTFILENAME));
-      String nextWord;
-      while((nextWord = input.readLine()) != null)
-        // there is a contract that these are all lowercase but
-        // we'll just assume it here for speed
-        wordsFromFile.add(nextWord);
-
-      //Close the file
-      input.close();
+      computerPlayer.loadLexicon(WORDLISTFILENAME);
     } catch (FileNotFoundException fnfex )      {
       JOptionPane.showMessageDialog(null, 
                                     "Unable to find word list file " + WORDLISTFILENAME, "Error",
@@ -220,10 +426,7 @@ public class BoggleGUI extends JFrame {
                                     "Error Opening File", "Error",
                                     JOptionPane.ERROR_MESSAGE);
     }
-    System.err.println(" Read " + wordsFromFile.size() + " words.");
-    System.err.print("Building player's lexicon... ");
-    computerPlayer.buildLexicon(wordsFromFile);
-    System.err.println("done.");
+    System.err.println(" done.");
   }
 
   /**
@@ -270,7 +473,7 @@ public class BoggleGUI extends JFrame {
     newRandom.setMnemonic('N');
     newRandom.addActionListener(new ActionListener() {
       public void actionPerformed( ActionEvent e) {
-        newGame(theBoard.getRandomBoard());
+        newGame(boardPool.take());
       }});
 
     JMenuItem customGame = new JMenuItem("New Custom");
@@ -315,7 +518,7 @@ public class BoggleGUI extends JFrame {
     public static final Color BACKGROUNDCOLOR = new Color(255, 219, 13);
 
     private DiePanel theDice[][];
-    private Vector<Die> diceBag;  // used for drawing a random game
+    private BoggleDice dice;  // used for drawing a random game
     private int rows, cols;
     private BogglePlayer theComputer;
 
@@ -324,7 +527,7 @@ public class BoggleGUI extends JFrame {
       this.theComputer = theComputer;
 
       // create some dice to use when getting a random game
-      initDiceBag();
+      dice = new BoggleDice();
 
       // create a JPanel with rowsXcols GridLayout to hold the DiePanels
       JPanel innerPanel = new JPanel();
@@ -345,31 +548,6 @@ public class BoggleGUI extends JFrame {
       this.add(innerPanel);
     }
 
-    /**
-        * fill the diceBag with the 16 "official" Boggle dice for the 4X4 game
-     * @param none
-     * @return void
-     */
-    private void initDiceBag() {
-      diceBag = new Vector<Die>(16);
-      diceBag.add(new Die("A", "O", "B", "B", "O", "J"));
-      diceBag.add(new Die("W", "H", "G", "E", "E", "N"));
-      diceBag.add(new Die("N", "R", "N", "Z", "H", "L"));
-      diceBag.add(new Die("N", "A", "E", "A", "G", "E"));
-      diceBag.add(new Die("D", "I", "Y", "S", "T", "T"));
-      diceBag.add(new Die("I", "E", "S", "T", "S", "O"));
-      diceBag.add(new Die("A", "O", "T", "T", "W", "O"));
-      diceBag.add(new Die("H", "Qu", "U", "M", "N", "I"));
-      diceBag.add(new Die("R", "Y", "T", "L", "T", "E"));
-      diceBag.add(new Die("P", "O", "H", "C", "S", "A"));
-      diceBag.add(new Die("L", "R", "E", "V", "Y", "D"));
-      diceBag.add(new Die("E", "X", "L", "D", "I", "R"));
-      diceBag.add(new Die("I", "E", "N", "S", "U", "E"));
-      diceBag.add(new Die("S", "F", "F", "K", "A", "P"));
-      diceBag.add(new Die("I", "O", "T", "M", "U", "C"));
-      diceBag.add(new Die("E", "H", "W", "V", "T", "R"));
-    }
-
     /**
      * Return an array of Strings showing the sequence of faces on
      * a randomly generated board.
@@ -377,18 +555,7 @@ public class BoggleGUI extends JFrame {
      * @return array of strings representing the letters on the board
      */
     public String[] getRandomBoard()  {
-      // Get random faces from randomy selected dice to fill the letterList
-      int diceBagSize = diceBag.size();
-      int boardSize = rows * cols;
-      String[] letterList = new String[(rows * cols)];
-      // we try to handle any size board with a fixed diceBag
-      for (int i = 0; i<boardSize; i++) {
-        if(i % diceBagSize == 0 )  Collections.shuffle(diceBag);
-        Die d = (Die) diceBag.elementAt(i % diceBagSize);
-        letterList[i] =   d.getRandomFace();
-      }
-      // set the corresponding DiePanels, and return the result
-      return letterList;
+      return dice.getRandomBoard(rows, cols);
     }
 
     /**
@@ -436,7 +603,7 @@ public class BoggleGUI extends JFrame {
       String result = "";
       for(int i = 0; i < locations.size(); i++)              {
         loc = ((Integer)locations.get(i)).intValue();
-        row = loc / rows;
+        row = loc / cols;
         col = loc % cols;
         result += theDice[row][col].getFace();
       }
@@ -500,47 +667,6 @@ public class BoggleGUI extends JFrame {
     }
 
 
-    /**
-        Helper class used to represent dice.
-     */
-    static class Die {
-      private String[] sides;
-      private int currentSideUp;
-      public Random randomizer = new Random();
-
-      public Die(String side1, String side2, String side3,
-                 String side4, String side5, String side6)    {
-        sides = new String[] {side1,side2,side3,side4,side5,side6};
-        randomize();
-      }
-
-      /**
-          * Given the state of the die, retrieves the letter on top.
-       * @return String the letter
-       */
-      public String getLetter()    {
-        return sides[currentSideUp];
-      }
-
-      /**
-          * Picks a side of the die at random and returns the letter.
-       * @return String the letter chosen.
-       */
-      public String getRandomFace()    {
-        randomize();
-        return sides[currentSideUp];
-      }
-
-      /**
-          * Picks a number between 0 and 5.
-       */
-      private void randomize()    {
-        currentSideUp = randomizer.nextInt(6);
-      }
-    }
-                
-
-
     /** For displaying one Die on the board
         */
     static class DiePanel extends JPanel {
@@ -715,6 +841,10 @@ public class BoggleGUI extends JFrame {
       return wordList.contains(word);
     }
 
+    public Set<String> getWords() {
+      return wordList;
+    }
+
     public void addWord(String word)  {
       if (containsWord(word)) return;
       wordList.add(word);
@@ -723,11 +853,31 @@ public class BoggleGUI extends JFrame {
       wordArea.paintImmediately(wordArea.getVisibleRect());
     }
 
+    /**
+     * Add many words with one append and one repaint, instead of
+     * painting after each word as addWord does.
+     */
+    public void addWords(Collection<String> words)  {
+      StringBuilder text = new StringBuilder();
+      int points = 0;
+      for (String word : words) {
+        word = word.toLowerCase();
+        if (!wordList.add(word)) continue;
+        text.append(' ').append(word).append('\n');
+        points += pointsForWord(word);
+      }
+      if (text.length() == 0) return;
+      wordArea.append(text.toString());
+      playerScore += points;
+      scoreText.setText(playerScore+"");
+      repaint();
+    }
+
     /**
      * Define how many points a player gets for a given word.
      */
     public int pointsForWord(String word) {
-      return word.length() - BoggleGUI.MINIMUMWORDLENGTH + 1;
+      return BogglePlayer.pointsForWord(word, BoggleGUI.MINIMUMWORDLENGTH);
     }
 
     public void addPoints(int points)  {
@@ -745,6 +895,7 @@ public class BoggleGUI extends JFrame {
   } // class ScoreArea
 
   class WordEntryField extends JPanel {
+    private final Color WORDCOLOR = new Color(3, 128, 77);
     private JTextField textField;
     
     public WordEntryField() {
@@ -755,6 +906,12 @@ public class BoggleGUI extends JFrame {
         public void actionPerformed( ActionEvent e) {
           checkAndAddWordHuman(textField.getText());
         }});
+      //Check each letter as it is typed
+      textField.getDocument().addDocumentListener(new DocumentListener() {
+        public void insertUpdate(DocumentEvent e) { followTyping(); }
+        public void removeUpdate(DocumentEvent e) { followTyping(); }
+        public void changedUpdate(DocumentEvent e) { }
+      });
       this.add(new JLabel("Enter word: "));
       this.add(textField);
       setUnready();
@@ -764,6 +921,27 @@ public class BoggleGUI extends JFrame {
       textField.setText("");
     }
 
+    /**
+     * Show, while the word is typed, whether it can still become a word
+     * on this board: red when it can't, green once it is one.  The
+     * tiles the last letter can be on are highlighted.  The cursor only
+     * does the work for the letters that changed.
+     */
+    private void followTyping() {
+      if (wordCursor == null) return;
+      String text = textField.getText();
+      wordCursor.setText(text);
+      if (text.length() == 0) {
+        // leave the highlighting of the word just accepted alone
+        textField.setForeground(Color.black);
+        return;
+      }
+      if (wordCursor.isWord()) textField.setForeground(WORDCOLOR);
+      else if (wordCursor.isLive()) textField.setForeground(Color.black);
+      else textField.setForeground(Color.red);
+      theBoard.highlightDice(wordCursor.getCandidateTiles());
+    }
+
     public void setUnready() {
       clear();
       textField.setEditable(false);
@@ -823,6 +1001,8 @@ public class BoggleGUI extends JFrame {
     System.err.println("Starting " + DICEROWS + "x" + DICECOLS + " game," +
          " words from " + WORDLISTFILENAME +
          ", min word length " + MINIMUMWORDLENGTH + ".");
+    // let jconsole and friends watch the engine
+    BoggleMetrics.registerMBean();
     (new BoggleGUI()).setVisible(true);
   }
 
@@ -0,0 +1,729 @@
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * A directed acyclic word graph (DAWG) holding every word of the
+ * lexicon.  It is a prefix tree in which identical subtrees are stored
+ * only once, so words share their endings as well as their beginnings
+ * ("-ing", "-ness", ...).  For enable1.txt this takes the tree from
+ * close to 400,000 nodes down to a few tens of thousands, and the
+ * whole lexicon fits in about a megabyte.
+ *
+ * The graph is stored in three flat int buffers rather than as node
+ * objects.  Each node has a mask with one bit per letter 'a'..'z' that
+ * has a child, plus a TERMINAL bit when the path to the node spells a
+ * word.  The edges leaving a node are stored next to each other, in
+ * letter order, starting at edge firstEdge[node].  Each edge is a pair
+ * of ints: the child node, and how many words come before the child's
+ * words in alphabetical order among the words below the parent.
+ *
+ * Since nodes are shared, a node does not tell which word a path
+ * spells.  Adding up the edge word offsets along the path does: it
+ * gives the word's position in the sorted lexicon, 0 to size()-1.
+ *
+ * A lexicon never changes once it has been built.  It can be written
+ * to a compiled lexicon file (see main) which load() memory maps and
+ * uses as is, without reading, sorting or allocating a single word.
+ * A compiled file holds, as little endian ints:
+ *
+ *     MAGIC, VERSION, minWordLength, wordCount, nodeCount, edgeCount, root,
+ *     masks[nodeCount], firstEdge[nodeCount], edges[2 * edgeCount]
+ *
+ * @see BogglePlayer
+ */
+public class BoggleLexicon {
+
+    public static final int ALPHABET = 26;
+    //Set in a node's mask when the path to it spells a word
+    public static final int TERMINAL = 1 << ALPHABET;
+
+    //Compiled file layout
+    private static final int MAGIC = 0x42474c58;  //"BGLX"
+    private static final int VERSION = 2;
+    private static final int HEADER_INTS = 7;
+    public static final String COMPILED_SUFFIX = ".lex";
+
+    //vars
+    private IntBuffer masks;      //Child letters of each node, plus TERMINAL
+    private IntBuffer firstEdge;  //Where each node's children start in edges
+    private IntBuffer edges;      //Child node and word offset pairs, grouped by parent
+    private int nodeCount, edgeCount;
+    private int wordCount;
+    private int minWordLength;
+    private int root;
+    private volatile int maxWordLength = -1;   //Worked out when first asked for
+    private volatile long checksum = -1;       //Likewise
+    private volatile int[] packed;             //Likewise
+
+    //only used while building
+    private int[] buildMasks, buildFirstEdge, buildEdges, buildWordsBelow;
+    private HashMap<NodeKey, Integer> register; //Nodes made so far, by contents
+
+
+    /**
+     * Builds the lexicon from a collection of words.  Words are
+     * lowercased; words shorter than minWordLength or containing
+     * anything other than the letters a to z are left out.
+     * @param wordList   the words to put in the lexicon (any order)
+     * @param minWordLength   the shortest word to keep
+     */
+    public BoggleLexicon(Collection<String> wordList, int minWordLength) {
+	BoggleEvents.LexiconPhase sorting = new BoggleEvents.LexiconPhase();
+	sorting.begin();
+	String[] words = new String[wordList.size()];
+	int count = 0;
+
+	for (String word : wordList) {
+	    if (word.length() >= minWordLength && isPlainWord(word))
+		words[count++] = word.toLowerCase();
+	}
+	Arrays.sort(words, 0, count);
+
+	//drop duplicates (e.g. the same word in two cases)
+	int unique = 0;
+	for (int i = 0; i < count; i++) {
+	    if (unique == 0 || !words[i].equals(words[unique - 1]))
+		words[unique++] = words[i];
+	}
+	wordCount = unique;
+	this.minWordLength = minWordLength;
+	endPhase(sorting, "sort");
+
+	BoggleEvents.LexiconPhase indexing = new BoggleEvents.LexiconPhase();
+	indexing.begin();
+	buildMasks = new int[1024];
+	buildFirstEdge = new int[1024];
+	buildWordsBelow = new int[1024];
+	buildEdges = new int[2048];
+	register = new HashMap<NodeKey, Integer>();
+	root = build(words, 0, unique, 0);
+
+	masks = IntBuffer.wrap(Arrays.copyOf(buildMasks, nodeCount));
+	firstEdge = IntBuffer.wrap(Arrays.copyOf(buildFirstEdge, nodeCount));
+	edges = IntBuffer.wrap(Arrays.copyOf(buildEdges, 2 * edgeCount));
+	buildMasks = buildFirstEdge = buildEdges = buildWordsBelow = null;
+	register = null;
+	endPhase(indexing, "index");
+    }
+
+
+    /*
+     * Commits a phase event begun before, if it is being recorded.
+     */
+    private void endPhase(BoggleEvents.LexiconPhase event, String phase) {
+	if (event.shouldCommit()) {
+	    event.phase = phase;
+	    event.words = wordCount;
+	    event.commit();
+	}
+    }
+
+
+    /*
+     * Wraps the sections of a compiled lexicon file.
+     */
+    private BoggleLexicon(ByteBuffer file) throws IOException {
+	IntBuffer header = file.asIntBuffer();
+	if (header.remaining() < HEADER_INTS || header.get(0) != MAGIC)
+	    throw new IOException("not a compiled lexicon");
+	if (header.get(1) != VERSION)
+	    throw new IOException("compiled lexicon version " + header.get(1)
+				  + ", expected " + VERSION);
+
+	minWordLength = header.get(2);
+	wordCount = header.get(3);
+	nodeCount = header.get(4);
+	edgeCount = header.get(5);
+	root = header.get(6);
+	if ((long)HEADER_INTS + 2L * nodeCount + 2L * edgeCount > header.remaining())
+	    throw new IOException("compiled lexicon is truncated");
+
+	masks = section(file, HEADER_INTS, nodeCount);
+	firstEdge = section(file, HEADER_INTS + nodeCount, nodeCount);
+	edges = section(file, HEADER_INTS + 2 * nodeCount, 2 * edgeCount);
+    }
+
+
+    private static IntBuffer section(ByteBuffer file, int firstInt, int length) {
+	ByteBuffer bytes = file.duplicate();
+	bytes.position(firstInt * 4);
+	bytes.limit((firstInt + length) * 4);
+	return bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+
+    /**
+     * Memory maps a compiled lexicon file.  Nothing is copied; the
+     * lexicon reads the file's pages as it is used.
+     * @param filename   a file written by write() or main
+     * @return the lexicon
+     * @throws IOException if the file can't be read or isn't a
+     * compiled lexicon
+     */
+    public static BoggleLexicon load(String filename) throws IOException {
+	BoggleEvents.LexiconPhase mapping = new BoggleEvents.LexiconPhase();
+	mapping.begin();
+	FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+	try {
+	    //the mapping stays valid after the channel is closed
+	    MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	    BoggleLexicon lexicon = new BoggleLexicon(file.order(ByteOrder.LITTLE_ENDIAN));
+	    lexicon.endPhase(mapping, "map");
+	    return lexicon;
+	}
+	finally {
+	    channel.close();
+	}
+    }
+
+
+    /**
+     * Opens a lexicon file of either kind.  A compiled lexicon is
+     * memory mapped.  For a word list, an up to date compiled copy next
+     * to it (enable1.lex for enable1.txt) is mapped instead, as long as
+     * it keeps short enough words; otherwise the list is read and built.
+     * @param filename   a word list or a compiled lexicon
+     * @param minWordLength   the shortest word the caller needs
+     * @return the lexicon
+     * @throws IOException if the file can't be read, or a compiled
+     * lexicon leaves out words of minWordLength letters
+     */
+    public static BoggleLexicon open(String filename, int minWordLength) throws IOException {
+	if (isCompiled(filename)) {
+	    BoggleLexicon compiled = load(filename);
+	    if (compiled.getMinWordLength() > minWordLength)
+		throw new IOException(filename + " only has words of "
+				      + compiled.getMinWordLength() + " or more letters");
+	    return compiled;
+	}
+
+	File wordList = new File(filename);
+	File compiledFile = new File(compiledFileName(filename));
+	if (wordList.isFile() && compiledFile.isFile()
+	    && compiledFile.lastModified() >= wordList.lastModified()
+	    && isCompiled(compiledFile.getPath())) {
+	    try {
+		BoggleLexicon compiled = load(compiledFile.getPath());
+		if (compiled.getMinWordLength() <= minWordLength)
+		    return compiled;
+	    }
+	    catch (IOException e) {
+		//stale or damaged; read the word list instead
+	    }
+	}
+
+	return new BoggleLexicon(readWordList(filename), minWordLength);
+    }
+
+
+    /**
+     * Checks the first bytes of a file for the compiled lexicon magic.
+     * @param filename   the file to look at
+     * @return true when the file looks like a compiled lexicon
+     */
+    public static boolean isCompiled(String filename) {
+	try {
+	    DataInputStream in = new DataInputStream(new FileInputStream(filename));
+	    try {
+		return Integer.reverseBytes(in.readInt()) == MAGIC;
+	    }
+	    finally {
+		in.close();
+	    }
+	}
+	catch (IOException e) {
+	    return false;
+	}
+    }
+
+
+    /**
+     * Writes the lexicon in the compiled format load() reads.  The
+     * file is written under a temporary name next to it and then moved
+     * into place, so a lexicon still mapped from the old file keeps
+     * its contents (see BoggleLexiconReloader).
+     * @param filename   the file to create or replace
+     */
+    public void write(String filename) throws IOException {
+	int ints = HEADER_INTS + 2 * nodeCount + 2 * edgeCount;
+	ByteBuffer bytes = ByteBuffer.allocate(ints * 4).order(ByteOrder.LITTLE_ENDIAN);
+	IntBuffer out = bytes.asIntBuffer();
+
+	out.put(MAGIC).put(VERSION).put(minWordLength).put(wordCount)
+	    .put(nodeCount).put(edgeCount).put(root);
+	out.put(masks.duplicate()).put(firstEdge.duplicate()).put(edges.duplicate());
+
+	Path target = Paths.get(filename).toAbsolutePath();
+	Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+	try {
+	    FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+	    try {
+		while (bytes.hasRemaining())
+		    channel.write(bytes);
+		channel.force(true);
+	    }
+	    finally {
+		channel.close();
+	    }
+	    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+		       StandardCopyOption.REPLACE_EXISTING);
+	}
+	finally {
+	    Files.deleteIfExists(temp);
+	}
+    }
+
+
+    /**
+     * The compiled lexicon file that goes with a word list, e.g.
+     * enable1.lex for enable1.txt.
+     */
+    public static String compiledFileName(String wordListFile) {
+	int dot = wordListFile.lastIndexOf('.');
+	int slash = wordListFile.lastIndexOf(File.separatorChar);
+	if (dot <= slash + 1)
+	    return wordListFile + COMPILED_SUFFIX;
+	return wordListFile.substring(0, dot) + COMPILED_SUFFIX;
+    }
+
+
+    /**
+     * Reads a plain word list, one word per line.
+     * @param filename   the word list
+     * @return the words in the file
+     */
+    public static List<String> readWordList(String filename) throws IOException {
+	BoggleEvents.LexiconPhase reading = new BoggleEvents.LexiconPhase();
+	reading.begin();
+	List<String> words = new ArrayList<String>();
+	BufferedReader input = new BufferedReader(new FileReader(filename));
+	try {
+	    String nextWord;
+	    while ((nextWord = input.readLine()) != null)
+		words.add(nextWord.trim());
+	}
+	finally {
+	    input.close();
+	}
+	if (reading.shouldCommit()) {
+	    reading.phase = "read";
+	    reading.words = words.size();
+	    reading.commit();
+	}
+	return words;
+    }
+
+
+    /**
+     * Builds the subgraph for words[lo..hi), which all share their first
+     * depth letters.  The words are sorted, so once a child's range is
+     * done no later word can add to it, and it can be merged with an
+     * existing node right away.  Children are built before their parent
+     * so that a node's edges can be written in one go.
+     * @return the id of the node
+     */
+    private int build(String[] words, int lo, int hi, int depth) {
+	int mask = 0;
+	int[] kids = new int[ALPHABET];
+	int kidCount = 0;
+
+	//the list is sorted, so a word ending here comes first
+	if (lo < hi && words[lo].length() == depth) {
+	    mask |= TERMINAL;
+	    lo++;
+	}
+
+	while (lo < hi) {
+	    char c = words[lo].charAt(depth);
+	    int end = lo + 1;
+	    while (end < hi && words[end].charAt(depth) == c)
+		end++;
+
+	    kids[kidCount++] = build(words, lo, end, depth + 1);
+	    mask |= 1 << (c - 'a');
+	    lo = end;
+	}
+
+	return addNode(mask, kids, kidCount);
+    }
+
+
+    /*
+     * Returns the node with this mask and these children, making it if
+     * no such node exists yet.  Since the children are already unique,
+     * two nodes with the same contents have the same words below them.
+     */
+    private int addNode(int mask, int[] kids, int kidCount) {
+	NodeKey key = new NodeKey(mask, kids, kidCount);
+	Integer existing = register.get(key);
+	if (existing != null)
+	    return existing.intValue();
+
+	if (nodeCount == buildMasks.length) {
+	    buildMasks = Arrays.copyOf(buildMasks, nodeCount * 2);
+	    buildFirstEdge = Arrays.copyOf(buildFirstEdge, nodeCount * 2);
+	    buildWordsBelow = Arrays.copyOf(buildWordsBelow, nodeCount * 2);
+	}
+	while (2 * (edgeCount + kidCount) > buildEdges.length)
+	    buildEdges = Arrays.copyOf(buildEdges, buildEdges.length * 2);
+
+	int wordsBelow = ((mask & TERMINAL) != 0) ? 1 : 0;
+	buildMasks[nodeCount] = mask;
+	buildFirstEdge[nodeCount] = edgeCount;
+	for (int i = 0; i < kidCount; i++) {
+	    buildEdges[2 * edgeCount] = kids[i];
+	    buildEdges[2 * edgeCount + 1] = wordsBelow;
+	    wordsBelow += buildWordsBelow[kids[i]];
+	    edgeCount++;
+	}
+	buildWordsBelow[nodeCount] = wordsBelow;
+
+	register.put(key, nodeCount);
+	return nodeCount++;
+    }
+
+
+    /*
+     * The contents of a node, used to find nodes that can be shared.
+     */
+    private static class NodeKey {
+	private final int[] contents;
+	private final int hash;
+
+	NodeKey(int mask, int[] kids, int kidCount) {
+	    contents = new int[kidCount + 1];
+	    contents[0] = mask;
+	    System.arraycopy(kids, 0, contents, 1, kidCount);
+	    hash = Arrays.hashCode(contents);
+	}
+
+	public int hashCode() {
+	    return hash;
+	}
+
+	public boolean equals(Object other) {
+	    return other instanceof NodeKey
+		&& Arrays.equals(contents, ((NodeKey)other).contents);
+	}
+    }
+
+
+    /**
+     * The node for the empty prefix; every walk through the lexicon
+     * starts here.
+     */
+    public int getRoot() {
+	return root;
+    }
+
+
+    /**
+     * Follows one letter down from a node.
+     * @param node   the current prefix
+     * @param letter   0 for 'a' up to 25 for 'z'
+     * @return the node for the longer prefix, or -1 when no word in
+     * the lexicon starts with it
+     */
+    public int getChild(int node, int letter) {
+	int edge = getEdge(node, letter);
+	return (edge < 0) ? -1 : edges.get(2 * edge);
+    }
+
+
+    /**
+     * Finds the edge for one letter out of a node.  Solvers that need
+     * to tell words apart follow edges rather than children, adding up
+     * getEdgeWordOffset to get the word's index.
+     * @param node   the current prefix
+     * @param letter   0 for 'a' up to 25 for 'z'
+     * @return the edge, or -1 when no word in the lexicon starts with
+     * the longer prefix
+     */
+    public int getEdge(int node, int letter) {
+	int mask = masks.get(node);
+	int bit = 1 << letter;
+
+	if ((mask & bit) == 0)
+	    return -1;
+	return firstEdge.get(node) + Integer.bitCount(mask & (bit - 1));
+    }
+
+
+    /**
+     * @return the node an edge leads to
+     */
+    public int getEdgeTarget(int edge) {
+	return edges.get(2 * edge);
+    }
+
+
+    /**
+     * @return how much following this edge adds to the word index
+     */
+    public int getEdgeWordOffset(int edge) {
+	return edges.get(2 * edge + 1);
+    }
+
+
+    /**
+     * @return a mask with bit i set when letter i can follow the node
+     */
+    public int getChildMask(int node) {
+	return masks.get(node) & (TERMINAL - 1);
+    }
+
+
+    /**
+     * @return true when the path to this node spells a whole word
+     */
+    public boolean isWord(int node) {
+	return (masks.get(node) & TERMINAL) != 0;
+    }
+
+
+    /**
+     * Checks whether a word is in the lexicon.  Case is ignored.
+     * @param word   the word to look up
+     * @return true when the word is in the lexicon, false otherwise
+     */
+    public boolean contains(String word) {
+	int node = root;
+
+	for (int i = 0; i < word.length() && node >= 0; i++) {
+	    int letter = letterIndex(word.charAt(i));
+	    if (letter < 0)
+		return false;
+	    node = getChild(node, letter);
+	}
+	return node >= 0 && isWord(node);
+    }
+
+
+    /**
+     * Looks up a word's position in the sorted lexicon.  Solvers get
+     * the same number by adding up edge word offsets as they go.
+     * @param word   the word to look up, in either case
+     * @return 0 to size()-1, or -1 when the word is not in the lexicon
+     */
+    public int getWordIndex(String word) {
+	int node = root;
+	int index = 0;
+
+	for (int i = 0; i < word.length(); i++) {
+	    int letter = letterIndex(word.charAt(i));
+	    int edge = (letter < 0) ? -1 : getEdge(node, letter);
+	    if (edge < 0)
+		return -1;
+	    index += getEdgeWordOffset(edge);
+	    node = getEdgeTarget(edge);
+	}
+	return isWord(node) ? index : -1;
+    }
+
+
+    /**
+     * @return the number of words in the lexicon
+     */
+    public int size() {
+	return wordCount;
+    }
+
+
+    /**
+     * @return the length of the shortest words kept
+     */
+    public int getMinWordLength() {
+	return minWordLength;
+    }
+
+
+    /**
+     * The graph in a single int array, for searches that step through
+     * it so often that where things are in memory counts (see
+     * BoggleBitboardSolver).  A node is a record at position p:
+     *
+     *     graph[p]                  the node's mask: child letters, plus TERMINAL
+     *     graph[p + 1 + 2k]         position of the k'th child, in letter order
+     *     graph[p + 2 + 2k]         that edge's word offset
+     *
+     * so a node's mask and edges share a cache line, instead of being
+     * spread over three buffers.  The root is at 0 and nodes are placed
+     * depth first, so a node's first child follows it.  Built the first
+     * time it is asked for; the array must not be changed.
+     * @return the packed graph, nodeCount + 2 * edgeCount ints
+     */
+    public int[] getPackedGraph() {
+	int[] graph = packed;
+	if (graph == null) {
+	    graph = new int[nodeCount + 2 * edgeCount];
+	    int[] at = new int[nodeCount];
+	    Arrays.fill(at, -1);
+	    pack(root, at, graph, new int[1]);
+	    packed = graph;
+	}
+	return graph;
+    }
+
+
+    /*
+     * Places node, and then what is below it that hasn't been placed,
+     * from next[0] on.  Recursion goes no deeper than the longest word.
+     * @return the node's position
+     */
+    private int pack(int node, int[] at, int[] graph, int[] next) {
+	if (at[node] >= 0)
+	    return at[node];
+	int mask = masks.get(node);
+	int children = Integer.bitCount(mask & (TERMINAL - 1));
+	int p = next[0];
+	at[node] = p;
+	next[0] += 1 + 2 * children;
+
+	graph[p] = mask;
+	int first = firstEdge.get(node);
+	for (int k = 0; k < children; k++) {
+	    int edge = first + k;
+	    graph[p + 1 + 2 * k] = pack(edges.get(2 * edge), at, graph, next);
+	    graph[p + 2 + 2 * k] = edges.get(2 * edge + 1);
+	}
+	return p;
+    }
+
+
+    /**
+     * @return the length of the longest word in the lexicon, found the
+     * first time it is asked for by walking the graph once
+     */
+    public int getMaxWordLength() {
+	int length = maxWordLength;
+	if (length < 0) {
+	    int[] below = new int[nodeCount];   //Longest word below each node, plus one
+	    length = Math.max(0, longestBelow(root, below) - 1);
+	    maxWordLength = length;
+	}
+	return length;
+    }
+
+
+    /*
+     * One more than the letters in the longest word below node, or 0
+     * when there is none.  Recursion goes no deeper than the longest
+     * word.
+     */
+    private int longestBelow(int node, int[] below) {
+	if (below[node] != 0)
+	    return below[node];
+	int longest = isWord(node) ? 1 : 0;
+	int first = firstEdge.get(node);
+	int children = Integer.bitCount(getChildMask(node));
+	for (int e = first; e < first + children; e++) {
+	    int child = longestBelow(edges.get(2 * e), below);
+	    if (child > 0)
+		longest = Math.max(longest, child + 1);
+	}
+	below[node] = longest;
+	return longest;
+    }
+
+
+    /**
+     * A CRC-32 of the graph, so files made against a lexicon (e.g. a
+     * saved BoggleBoardPool) can tell whether they are used with the
+     * same words.  Worked out the first time it is asked for.
+     * @return the checksum, 0 to 2^32 - 1
+     */
+    public long getChecksum() {
+	long sum = checksum;
+	if (sum < 0) {
+	    java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+	    ByteBuffer bytes = ByteBuffer.allocate(4 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+	    for (IntBuffer section : new IntBuffer[] { masks, firstEdge, edges }) {
+		IntBuffer ints = section.duplicate();
+		ints.rewind();
+		while (ints.hasRemaining()) {
+		    bytes.clear();
+		    while (ints.hasRemaining() && bytes.hasRemaining())
+			bytes.putInt(ints.get());
+		    bytes.flip();
+		    crc.update(bytes);
+		}
+	    }
+	    sum = crc.getValue();
+	    checksum = sum;
+	}
+	return sum;
+    }
+
+
+    /**
+     * @return the number of nodes in the graph
+     */
+    public int getNodeCount() {
+	return nodeCount;
+    }
+
+
+    /**
+     * @return the number of edges in the graph
+     */
+    public int getEdgeCount() {
+	return edgeCount;
+    }
+
+
+    /**
+     * @return bytes taken by the node and edge buffers
+     */
+    public long getSizeInBytes() {
+	return 4L * (2L * nodeCount + 2L * edgeCount);
+    }
+
+
+    /**
+     * Maps a letter to its index in the lexicon's alphabet.
+     * @param c   a letter in either case
+     * @return 0 for 'a' up to 25 for 'z', or -1 for anything else
+     */
+    public static int letterIndex(char c) {
+	if (c >= 'a' && c <= 'z')
+	    return c - 'a';
+	if (c >= 'A' && c <= 'Z')
+	    return c - 'A';
+	return -1;
+    }
+
+
+    private static boolean isPlainWord(String word) {
+	for (int i = 0; i < word.length(); i++) {
+	    if (letterIndex(word.charAt(i)) < 0)
+		return false;
+	}
+	return true;
+    }
+
+
+    /**
+     * Compiles a word list into a lexicon file for load().
+     * Usage:
+     * java BoggleLexicon wordfile [ lexiconfile [ minwordlength ]]
+     */
+    public static void main(String args[]) throws IOException {
+	if (args.length < 1) {
+	    System.err.println("Usage: java BoggleLexicon wordfile [ lexiconfile [ minwordlength ]]");
+	    System.exit(1);
+	}
+	String wordFile = args[0];
+	String lexiconFile = (args.length > 1) ? args[1] : compiledFileName(wordFile);
+	//by default keep every word; games skip the short ones themselves
+	int minLength = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+	BoggleLexicon lexicon = new BoggleLexicon(readWordList(wordFile), minLength);
+	lexicon.write(lexiconFile);
+	System.err.println("Wrote " + lexicon.size() + " words, " + lexicon.getNodeCount()
+			   + " nodes, " + lexicon.getEdgeCount() + " edges to "
+			   + lexiconFile + ".");
+    }
+}
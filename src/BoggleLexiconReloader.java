@@ -0,0 +1,188 @@
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Holds the lexicon in use and lets it be replaced while games go on.
+ * A BoggleLexicon never changes once built, so a lexicon is already a
+ * snapshot; this class only decides which snapshot is current.  A new
+ * word file is read and built on a background thread, and the finished
+ * lexicon is swapped in with a single volatile write.
+ *
+ * Readers call get() once at the start of an operation and use what it
+ * returned to the end, so a solve or word check that is under way
+ * keeps the lexicon it started with, while the next one sees the new
+ * lexicon.  get() is a volatile read: no locks on the read path.
+ *
+ * watch() polls a word file and reloads it once it has changed and then
+ * stayed the same for a whole poll, so a server picks up the weekly
+ * word list without a restart.  A plain word list that is cut short
+ * still reads without error, so a reloaded lexicon that keeps less
+ * than a set share of the current one's words (half, to begin with;
+ * see setMinimumKept) is turned down rather than swapped in.  Writers
+ * that replace the file in one step (write a temporary file, then
+ * rename it) are safest.
+ * @see BogglePlayer#setLexiconSource
+ * @see BoggleServer
+ */
+public class BoggleLexiconReloader {
+
+    //Share of the current lexicon's words a reloaded one must have
+    public static final double MINIMUM_KEPT_DEFAULT = 0.5;
+
+    //vars
+    private volatile BoggleLexicon current;
+    private final int minWordLength;
+    private final AtomicLong generation = new AtomicLong();
+    private final ScheduledExecutorService loader;
+    private volatile double minimumKept = MINIMUM_KEPT_DEFAULT;
+
+
+    /**
+     * @param initial   the lexicon to start with
+     * @param minLength   the shortest word reloaded lexicons must keep
+     */
+    public BoggleLexiconReloader(BoggleLexicon initial, int minLength) {
+	current = initial;
+	minWordLength = minLength;
+	loader = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable task) {
+		    Thread thread = new Thread(task, "boggle-lexicon-loader");
+		    thread.setDaemon(true);
+		    thread.setPriority(Thread.MIN_PRIORITY);
+		    return thread;
+		}});
+    }
+
+
+    /**
+     * Opens a lexicon file (see BoggleLexicon.open) to start with.
+     */
+    public static BoggleLexiconReloader open(String filename, int minLength) throws IOException {
+	return new BoggleLexiconReloader(BoggleLexicon.open(filename, minLength), minLength);
+    }
+
+
+    /**
+     * @return the current lexicon
+     */
+    public BoggleLexicon get() {
+	return current;
+    }
+
+
+    /**
+     * @return how many times the lexicon has been replaced
+     */
+    public long getGeneration() {
+	return generation.get();
+    }
+
+
+    /**
+     * Replaces the lexicon right away.
+     * @param lexicon   the lexicon new operations use from now on
+     */
+    public void swap(BoggleLexicon lexicon) {
+	current = lexicon;
+	generation.incrementAndGet();
+    }
+
+
+    /**
+     * Sets how small a reloaded lexicon may be next to the current one.
+     * @param share   the share of the current lexicon's words the new
+     * one must have, e.g. 0.5; 0 to take any lexicon
+     */
+    public void setMinimumKept(double share) {
+	minimumKept = share;
+    }
+
+
+    /**
+     * Builds a lexicon from a file in the background and swaps it in
+     * when it is done.  Games go on with the old lexicon meanwhile.
+     * @param filename   a word list or a compiled lexicon
+     * @return the new lexicon, once built; a file that can't be read,
+     * or has too few words (see setMinimumKept), fails the future and
+     * leaves the current lexicon in place
+     */
+    public Future<BoggleLexicon> reload(final String filename) {
+	return loader.submit(new Callable<BoggleLexicon>() {
+		public BoggleLexicon call() throws IOException {
+		    return load(filename);
+		}});
+    }
+
+
+    private BoggleLexicon load(String filename) throws IOException {
+	BoggleEvents.LexiconLoad event = new BoggleEvents.LexiconLoad();
+	event.begin();
+	long begin = System.nanoTime();
+	BoggleLexicon lexicon = BoggleLexicon.open(filename, minWordLength);
+	BoggleMetrics.get().recordLexicon(System.nanoTime() - begin, lexicon.getSizeInBytes(),
+					  lexicon.size());
+	if (event.shouldCommit()) {
+	    event.source = filename;
+	    event.words = lexicon.size();
+	    event.bytes = lexicon.getSizeInBytes();
+	    event.commit();
+	}
+	int kept = (int)Math.ceil(minimumKept * current.size());
+	if (lexicon.size() < kept)
+	    throw new IOException(filename + " has " + lexicon.size() + " words, fewer than "
+				  + kept + " (see setMinimumKept)");
+	swap(lexicon);
+	return lexicon;
+    }
+
+
+    /**
+     * Checks a file every so often and reloads it once it has changed
+     * and its size and modification time have then stayed the same
+     * from one check to the next, so a file is not read while it is
+     * being written.  A file that fails to load, or is turned down as
+     * too small, is tried again when it changes again.
+     * @param filename   the word list or compiled lexicon to watch
+     * @param periodMillis   time between checks
+     */
+    public void watch(final String filename, long periodMillis) {
+	final File file = new File(filename);
+	//{ modified, length } last loaded, and as seen at the last check
+	final long[] loaded = { file.lastModified(), file.length() };
+	final long[] seen = loaded.clone();
+	loader.scheduleWithFixedDelay(new Runnable() {
+		public void run() {
+		    long modified = file.lastModified(), length = file.length();
+		    boolean settled = modified == seen[0] && length == seen[1];
+		    seen[0] = modified;
+		    seen[1] = length;
+		    if (modified == 0 || !settled
+			|| (modified == loaded[0] && length == loaded[1]))
+			return;
+		    loaded[0] = modified;
+		    loaded[1] = length;
+		    try {
+			load(filename);
+			System.err.println("Reloaded lexicon from " + filename + ".");
+		    }
+		    catch (IOException e) {
+			System.err.println("Unable to reload lexicon from " + filename
+					   + ": " + e.getMessage());
+		    }
+		    catch (RuntimeException e) {
+			//thrown on, it would end the watch for good
+			System.err.println("Unable to reload lexicon from " + filename
+					   + ": " + e);
+		    }
+		}}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Stops watching and loading.  The current lexicon stays usable.
+     */
+    public void shutdown() {
+	loader.shutdownNow();
+    }
+}
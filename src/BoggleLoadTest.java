@@ -0,0 +1,462 @@
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Puts load on the game engine with simulated players, to size the
+ * hardware a BoggleServer needs.  Each player plays game after game
+ * until the time is up: it starts a game on a random board, enters
+ * words, ends its turn and asks for the computer's words.  The words
+ * are a mix like a real player's: most are on the board, some were
+ * entered already, some are lexicon words that aren't on the board and
+ * some aren't words at all.  The server puts them through the same
+ * checks as BoggleGUI.checkAndAddWordHuman.
+ *
+ * The players talk the BoggleServer protocol, either to a server in
+ * this JVM (without sockets) or to one listening on a port.  Each
+ * request is timed; at the end the throughput and the 50th, 99th and
+ * 99.9th percentile latency are printed for each kind of request.
+ *
+ * To pick words that are on a board, a player solves it itself, before
+ * its timer starts.  In-process, that work shares the CPU with the
+ * server's, so the throughput is a little pessimistic.
+ *
+ * Usage:
+ * java BoggleLoadTest [ -w wordfile ] [ -r rows ] [ -c columns ]
+ *                     [ -m minwordlength ] [ -n players ] [ -t seconds ]
+ *                     [ -words words per game ] [ -think milliseconds ]
+ *                     [ -server host:port ] [ -s seed ]
+ * @see BoggleServer
+ */
+public class BoggleLoadTest {
+
+    //Kinds of request, as reported
+    private static final String[] OPERATIONS = { "NEW", "WORD", "END", "COMPUTER" };
+    private static final int NEW = 0, WORD = 1, END = 2, COMPUTER = 3;
+
+    //Share of each kind of word a player enters, in percent
+    private static final int VALID = 55, DUPLICATE = 15, OFF_BOARD = 15;   //the rest are not words
+
+    private static final String USAGE =
+	"Usage: java BoggleLoadTest [ -w wordfile ] [ -r rows ] [ -c columns ]"
+	+ " [ -m minwordlength ] [ -n players ] [ -t seconds ] [ -words words per game ]"
+	+ " [ -think milliseconds ] [ -server host:port ] [ -s seed ]";
+
+    //vars
+    private final BoggleLexicon lexicon;
+    private final String[] wordList;     //For words that aren't on the board
+    private final int rows, cols, minWordLength;
+    private int wordsPerGame = 20;
+    private long thinkMillis = 0;
+    private BoggleServer localServer;    //null when playing against a remote one
+    private String host;
+    private int port;
+
+    private final BlockingQueue<BoggleSolver> solvers;   //Lent to players for wordsOn
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+
+    /**
+     * How a player reaches the server.
+     */
+    interface Connection {
+	/**
+	 * @return the reply to one request line
+	 */
+	String request(String line) throws IOException;
+
+	void close();
+    }
+
+
+    /**
+     * Latencies of one kind of request, in nanoseconds, kept whole so
+     * the percentiles are exact.
+     */
+    public static class Latencies {
+	private long[] nanos = new long[1024];
+	private int count;
+
+	void add(long value) {
+	    if (count == nanos.length)
+		nanos = Arrays.copyOf(nanos, 2 * count);
+	    nanos[count++] = value;
+	}
+
+	void addAll(Latencies other) {
+	    for (int i = 0; i < other.count; i++)
+		add(other.nanos[i]);
+	}
+
+	public int size() {
+	    return count;
+	}
+
+	/**
+	 * Sorts the latencies; call before percentile.
+	 */
+	void sort() {
+	    Arrays.sort(nanos, 0, count);
+	}
+
+	/**
+	 * @param fraction   e.g. 0.99 for the 99th percentile
+	 * @return the latency in nanoseconds
+	 */
+	public long percentile(double fraction) {
+	    if (count == 0)
+		return 0;
+	    int rank = (int)Math.ceil(fraction * count) - 1;
+	    return nanos[Math.max(0, Math.min(count - 1, rank))];
+	}
+    }
+
+
+    /**
+     * @param lexicon   the lexicon the server uses
+     * @param wordList   words to draw from for words that aren't on
+     * the board
+     * @param r   number of rows
+     * @param c   number of columns
+     * @param minLength   the minimum size of a legal word
+     */
+    public BoggleLoadTest(BoggleLexicon lexicon, List<String> wordList,
+			  int r, int c, int minLength) {
+	this.lexicon = lexicon;
+	rows = r;
+	cols = c;
+	minWordLength = minLength;
+	List<String> longEnough = new ArrayList<String>();
+	for (String word : wordList) {
+	    if (word.length() >= minLength)
+		longEnough.add(word.toLowerCase());
+	}
+	this.wordList = longEnough.toArray(new String[0]);
+
+	//a few solvers are enough, and each holds a stamp per lexicon word
+	int count = 2 * Runtime.getRuntime().availableProcessors();
+	solvers = new ArrayBlockingQueue<BoggleSolver>(count);
+	for (int i = 0; i < count; i++)
+	    solvers.add(new BoggleSolver(lexicon));
+    }
+
+
+    /**
+     * Plays against a server in this JVM, talking to its sessions
+     * directly.
+     */
+    public void useLocalServer(int poolSize) {
+	localServer = new BoggleServer(lexicon, rows, cols, minWordLength, poolSize);
+	localServer.startBoardPool();
+	host = null;
+    }
+
+
+    /**
+     * Plays against a server listening on a port.
+     */
+    public void useServer(String host, int port) {
+	this.host = host;
+	this.port = port;
+	localServer = null;
+    }
+
+
+    public void setWordsPerGame(int words) {
+	wordsPerGame = words;
+    }
+
+
+    /**
+     * @param millis   pause before each request, as a player thinks
+     */
+    public void setThinkMillis(long millis) {
+	thinkMillis = millis;
+    }
+
+
+    private Connection connect() throws IOException {
+	if (localServer != null) {
+	    final BoggleServer.Session session = localServer.newSession();
+	    return new Connection() {
+		public String request(String line) {
+		    return session.handle(line);
+		}
+		public void close() {
+		}};
+	}
+
+	final Socket socket = new Socket(host, port);
+	socket.setTcpNoDelay(true);
+	final BufferedReader in = new BufferedReader(
+	    new InputStreamReader(socket.getInputStream(), "UTF-8"));
+	final Writer out = new BufferedWriter(
+	    new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+	in.readLine();   //HELLO
+	return new Connection() {
+	    public String request(String line) throws IOException {
+		out.write(line);
+		out.write('\n');
+		out.flush();
+		String reply = in.readLine();
+		if (reply == null)
+		    throw new EOFException("server closed the connection");
+		return reply;
+	    }
+	    public void close() {
+		try {
+		    socket.close();
+		}
+		catch (IOException e) {
+		    //done with it anyway
+		}
+	    }};
+    }
+
+
+    /**
+     * Runs the players.
+     * @param players   number of players at once
+     * @param millis   how long to play
+     * @param seed   seeds the players' choice of words
+     * @return the latencies of each kind of request, by OPERATIONS
+     */
+    public Latencies[] run(int players, long millis, long seed) throws InterruptedException {
+	final long deadline = System.nanoTime() + millis * 1000000L;
+	final List<Latencies[]> results = Collections.synchronizedList(new ArrayList<Latencies[]>());
+	ExecutorService threads = BoggleServer.newConnectionExecutor();
+	final CountDownLatch done = new CountDownLatch(players);
+
+	for (int p = 0; p < players; p++) {
+	    final Random randomizer = new Random(seed + p);
+	    threads.execute(new Runnable() {
+		    public void run() {
+			try {
+			    results.add(play(randomizer, deadline));
+			}
+			catch (IOException e) {
+			    errors.incrementAndGet();
+			}
+			finally {
+			    done.countDown();
+			}
+		    }});
+	}
+	done.await();
+	threads.shutdown();
+	if (localServer != null)
+	    localServer.stop();
+
+	Latencies[] total = new Latencies[OPERATIONS.length];
+	for (int op = 0; op < total.length; op++)
+	    total[op] = new Latencies();
+	for (Latencies[] player : results) {
+	    for (int op = 0; op < total.length; op++)
+		total[op].addAll(player[op]);
+	}
+	for (Latencies latencies : total)
+	    latencies.sort();
+	return total;
+    }
+
+
+    /*
+     * One player, playing games until the deadline.
+     */
+    private Latencies[] play(Random randomizer, long deadline) throws IOException {
+	Latencies[] latencies = new Latencies[OPERATIONS.length];
+	for (int op = 0; op < latencies.length; op++)
+	    latencies[op] = new Latencies();
+
+	Connection connection = connect();
+	try {
+	    while (System.nanoTime() < deadline) {
+		String board = timed(connection, "NEW", latencies[NEW]);
+		if (!board.startsWith("BOARD ")) {
+		    errors.incrementAndGet();
+		    continue;
+		}
+		String[] letters = board.substring(board.lastIndexOf(' ') + 1).split(",");
+		List<String> onBoard = wordsOn(letters);
+		List<String> entered = new ArrayList<String>();
+
+		for (int w = 0; w < wordsPerGame && System.nanoTime() < deadline; w++) {
+		    String word = pickWord(randomizer, onBoard, entered);
+		    String reply = timed(connection, "WORD " + word, latencies[WORD]);
+		    if (reply.startsWith("OK"))
+			entered.add(word);
+		    else if (reply.startsWith("ERR"))
+			errors.incrementAndGet();
+		}
+		timed(connection, "END", latencies[END]);
+		timed(connection, "COMPUTER", latencies[COMPUTER]);
+		games.incrementAndGet();
+	    }
+	    connection.request("QUIT");
+	}
+	finally {
+	    connection.close();
+	}
+	return latencies;
+    }
+
+
+    private String timed(Connection connection, String line, Latencies latencies)
+	throws IOException {
+	if (thinkMillis > 0) {
+	    try {
+		Thread.sleep(thinkMillis);
+	    }
+	    catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+	long begin = System.nanoTime();
+	String reply = connection.request(line);
+	latencies.add(System.nanoTime() - begin);
+	return reply;
+    }
+
+
+    /*
+     * A word as a player might enter it: on the board, entered already,
+     * a lexicon word that isn't on the board, or letters that aren't a
+     * word.
+     */
+    private String pickWord(Random randomizer, List<String> onBoard, List<String> entered) {
+	int kind = randomizer.nextInt(100);
+	if (kind < DUPLICATE && !entered.isEmpty())
+	    return entered.get(randomizer.nextInt(entered.size()));
+	if (kind < DUPLICATE + VALID && !onBoard.isEmpty())
+	    return onBoard.get(randomizer.nextInt(onBoard.size()));
+	if (kind < DUPLICATE + VALID + OFF_BOARD && wordList.length > 0)
+	    return wordList[randomizer.nextInt(wordList.length)];
+
+	char[] letters = new char[minWordLength + randomizer.nextInt(3)];
+	for (int k = 0; k < letters.length; k++)
+	    letters[k] = (char)('a' + randomizer.nextInt(26));
+	return new String(letters);
+    }
+
+
+    /*
+     * The words on a board, found with a solver lent by the test.
+     */
+    private List<String> wordsOn(String[] letters) throws IOException {
+	BoggleSolver solver;
+	try {
+	    solver = solvers.take();
+	}
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException("interrupted waiting for a solver");
+	}
+	try {
+	    BoggleSolution solution = new BoggleSolution();
+	    solver.setBoard(letters, rows, cols);
+	    solver.solve(minWordLength, solution);
+	    return solution.getWords();
+	}
+	finally {
+	    solvers.offer(solver);
+	}
+    }
+
+
+    public long getGames() {
+	return games.get();
+    }
+
+
+    /**
+     * @return requests that failed or were refused, and players that
+     * lost their connection
+     */
+    public long getErrors() {
+	return errors.get();
+    }
+
+
+    /**
+     * Prints one line per kind of request.
+     */
+    public static void report(Latencies[] latencies, double seconds, PrintStream out) {
+	out.printf("%-10s %10s %12s %10s %10s %10s %10s%n",
+		   "Request", "count", "per second", "p50 us", "p99 us", "p999 us", "max us");
+	for (int op = 0; op < latencies.length; op++) {
+	    Latencies l = latencies[op];
+	    out.printf("%-10s %10d %12.1f %10.1f %10.1f %10.1f %10.1f%n",
+		       OPERATIONS[op], l.size(), l.size() / seconds,
+		       l.percentile(0.50) / 1e3, l.percentile(0.99) / 1e3,
+		       l.percentile(0.999) / 1e3, l.percentile(1.0) / 1e3);
+	}
+    }
+
+
+    public static void main(String args[]) throws IOException, InterruptedException {
+	String wordFile = "enable1.txt", server = null;
+	int r = 4, c = 0, minWordLength = 4, players = 100, words = 20;
+	double seconds = 10;
+	long think = 0, seed = System.nanoTime();
+
+	try {
+	    for (int i = 0; i < args.length; i++) {
+		String arg = args[i];
+		if (arg.equals("-w")) wordFile = args[++i];
+		else if (arg.equals("-r")) r = Integer.parseInt(args[++i]);
+		else if (arg.equals("-c")) c = Integer.parseInt(args[++i]);
+		else if (arg.equals("-m")) minWordLength = Integer.parseInt(args[++i]);
+		else if (arg.equals("-n")) players = Integer.parseInt(args[++i]);
+		else if (arg.equals("-t")) seconds = Double.parseDouble(args[++i]);
+		else if (arg.equals("-words")) words = Integer.parseInt(args[++i]);
+		else if (arg.equals("-think")) think = Long.parseLong(args[++i]);
+		else if (arg.equals("-server")) server = args[++i];
+		else if (arg.equals("-s")) seed = Long.parseLong(args[++i]);
+		else throw new IllegalArgumentException("unknown option " + arg);
+	    }
+	    if (server != null && server.indexOf(':') < 0)
+		throw new IllegalArgumentException("no port in " + server);
+	}
+	catch (RuntimeException e) {
+	    System.err.println(USAGE);
+	    System.exit(1);
+	}
+	if (c == 0) c = r;
+
+	List<String> wordList;
+	try {
+	    wordList = BoggleLexicon.readWordList(wordFile);
+	}
+	catch (FileNotFoundException e) {
+	    System.err.println("Unable to find word list file " + wordFile);
+	    System.exit(1);
+	    return;
+	}
+	BoggleLexicon lexicon = BoggleLexicon.open(wordFile, minWordLength);
+
+	BoggleLoadTest test = new BoggleLoadTest(lexicon, wordList, r, c, minWordLength);
+	test.setWordsPerGame(words);
+	test.setThinkMillis(think);
+	if (server == null) {
+	    test.useLocalServer(256);
+	}
+	else {
+	    int colon = server.lastIndexOf(':');
+	    test.useServer(server.substring(0, colon),
+			   Integer.parseInt(server.substring(colon + 1)));
+	}
+
+	System.err.println(players + " players for " + seconds + " s against "
+			   + (server == null ? "an in-process server" : server) + ".");
+	long begin = System.nanoTime();
+	Latencies[] latencies = test.run(players, (long)(seconds * 1000), seed);
+	double elapsed = (System.nanoTime() - begin) / 1e9;
+
+	report(latencies, elapsed, System.out);
+	System.out.printf("%d games, %.1f per second, %d errors%n",
+			  test.getGames(), test.getGames() / elapsed, test.getErrors());
+    }
+}
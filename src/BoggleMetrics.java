@@ -0,0 +1,346 @@
+import java.util.concurrent.atomic.*;
+import java.lang.management.*;
+import javax.management.*;
+
+/**
+ * Counts what the engine does, for watching it in production: how much
+ * searching the solves take, how the lexicon and the solution cache are
+ * used, how long isOnBoard takes, and what building the lexicon cost.
+ * BogglePlayer reports to the one instance get() returns.
+ *
+ * Every counter is a LongAdder, which keeps a cell per contending
+ * thread and only adds the cells up when read, so threads reporting at
+ * once don't fight over one cache line.  The searches themselves count
+ * in plain fields of their solver and report once per solve.  All of
+ * this is cheap enough to leave on; setEnabled(false) turns it off.
+ *
+ * The numbers can be read with snapshot(), or over JMX once
+ * registerMBean() has been called (see BoggleMetricsMBean).
+ * @see BogglePlayer
+ */
+public class BoggleMetrics implements BoggleMetricsMBean {
+
+    //Where registerMBean puts the metrics
+    public static final String OBJECT_NAME = "boggle:type=Metrics";
+
+    private static final BoggleMetrics INSTANCE = new BoggleMetrics();
+
+    //vars
+    private volatile boolean enabled = true;
+
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder nodesPruned = new LongAdder();
+    private final Histogram solveNanos = new Histogram();
+    private final Histogram wordsPerBoard = new Histogram();
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder lexiconLookups = new LongAdder();
+    private final LongAdder lexiconHits = new LongAdder();
+    private final Histogram isOnBoardNanos = new Histogram();
+
+    private volatile long lexiconBuildNanos;
+    private volatile long lexiconBytes;
+    private volatile int lexiconWords;
+
+
+    /**
+     * Counts values in buckets by powers of two: bucket b holds values
+     * from 2^(b-1) up to 2^b - 1, bucket 0 holds 0.  That is coarse,
+     * but recording costs one LongAdder increment, and the buckets
+     * cover nanoseconds to centuries.
+     */
+    public static class Histogram {
+	public static final int BUCKETS = 64;
+
+	private final LongAdder[] counts = new LongAdder[BUCKETS];
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	Histogram() {
+	    for (int b = 0; b < BUCKETS; b++)
+		counts[b] = new LongAdder();
+	}
+
+	public void record(long value) {
+	    if (value < 0) value = 0;
+	    counts[64 - Long.numberOfLeadingZeros(value)].increment();
+	    sum.add(value);
+	    max.accumulate(value);
+	}
+
+	/**
+	 * @return the number of values in each bucket
+	 */
+	public long[] getCounts() {
+	    long[] result = new long[BUCKETS];
+	    for (int b = 0; b < BUCKETS; b++)
+		result[b] = counts[b].sum();
+	    return result;
+	}
+
+	public long getCount() {
+	    long count = 0;
+	    for (LongAdder bucket : counts)
+		count += bucket.sum();
+	    return count;
+	}
+
+	public double getMean() {
+	    long count = getCount();
+	    return (count == 0) ? 0 : (double)sum.sum() / count;
+	}
+
+	public long getMax() {
+	    return max.get();
+	}
+
+	/**
+	 * @param fraction   e.g. 0.99 for the 99th percentile
+	 * @return an upper bound for that percentile: the top of the
+	 * bucket it falls in, or 0 when nothing was recorded
+	 */
+	public long getPercentile(double fraction) {
+	    return percentile(getCounts(), fraction);
+	}
+
+	static long percentile(long[] counts, double fraction) {
+	    long total = 0;
+	    for (long count : counts)
+		total += count;
+	    if (total == 0)
+		return 0;
+	    long rank = (long)Math.ceil(fraction * total);
+	    long seen = 0;
+	    for (int b = 0; b < counts.length; b++) {
+		seen += counts[b];
+		if (seen >= Math.max(rank, 1))
+		    return (b == 0) ? 0 : (b == 63) ? Long.MAX_VALUE : (1L << b) - 1;
+	    }
+	    return Long.MAX_VALUE;
+	}
+
+	void reset() {
+	    for (LongAdder bucket : counts)
+		bucket.reset();
+	    sum.reset();
+	    max.reset();
+	}
+    }
+
+
+    /**
+     * The counters as they were at one moment.  Counters going up while
+     * it is taken may be caught a little apart from each other.
+     */
+    public static class Snapshot {
+	private final long solves, nodesVisited, nodesPruned, cacheHits;
+	private final long wordsFound;
+	private final double meanWordsPerBoard, meanSolveNanos, meanIsOnBoardNanos;
+	private final long[] solveBuckets, isOnBoardBuckets, wordBuckets;
+	private final long lexiconLookups, lexiconHits;
+	private final long lexiconBuildNanos, lexiconBytes;
+	private final int lexiconWords;
+
+	Snapshot(BoggleMetrics metrics) {
+	    solves = metrics.solves.sum();
+	    nodesVisited = metrics.nodesVisited.sum();
+	    nodesPruned = metrics.nodesPruned.sum();
+	    cacheHits = metrics.cacheHits.sum();
+	    wordsFound = metrics.wordsPerBoard.sum.sum();
+	    meanWordsPerBoard = metrics.wordsPerBoard.getMean();
+	    meanSolveNanos = metrics.solveNanos.getMean();
+	    meanIsOnBoardNanos = metrics.isOnBoardNanos.getMean();
+	    solveBuckets = metrics.solveNanos.getCounts();
+	    isOnBoardBuckets = metrics.isOnBoardNanos.getCounts();
+	    wordBuckets = metrics.wordsPerBoard.getCounts();
+	    lexiconLookups = metrics.lexiconLookups.sum();
+	    lexiconHits = metrics.lexiconHits.sum();
+	    lexiconBuildNanos = metrics.lexiconBuildNanos;
+	    lexiconBytes = metrics.lexiconBytes;
+	    lexiconWords = metrics.lexiconWords;
+	}
+
+	/**
+	 * @return boards solved, cache hits included
+	 */
+	public long getSolves() { return solves; }
+	public long getNodesVisited() { return nodesVisited; }
+	public long getNodesPruned() { return nodesPruned; }
+	public long getCacheHits() { return cacheHits; }
+	public long getWordsFound() { return wordsFound; }
+	public double getMeanWordsPerBoard() { return meanWordsPerBoard; }
+	public double getMeanSolveNanos() { return meanSolveNanos; }
+	public long[] getSolveBuckets() { return solveBuckets.clone(); }
+	public long[] getWordsPerBoardBuckets() { return wordBuckets.clone(); }
+	public long getLexiconLookups() { return lexiconLookups; }
+	public long getLexiconHits() { return lexiconHits; }
+	public double getMeanIsOnBoardNanos() { return meanIsOnBoardNanos; }
+	public long[] getIsOnBoardBuckets() { return isOnBoardBuckets.clone(); }
+	public long getLexiconBuildNanos() { return lexiconBuildNanos; }
+	public long getLexiconBytes() { return lexiconBytes; }
+	public int getLexiconWords() { return lexiconWords; }
+
+	/**
+	 * @return the share of isInLexicon calls that found their word
+	 */
+	public double getLexiconHitRatio() {
+	    return (lexiconLookups == 0) ? 0 : (double)lexiconHits / lexiconLookups;
+	}
+
+	/**
+	 * @return an upper bound for a percentile of isOnBoard's latency,
+	 * in nanoseconds
+	 */
+	public long getIsOnBoardPercentile(double fraction) {
+	    return Histogram.percentile(isOnBoardBuckets, fraction);
+	}
+
+	public long getSolvePercentile(double fraction) {
+	    return Histogram.percentile(solveBuckets, fraction);
+	}
+
+	public String toString() {
+	    return String.format("solves %d (cached %d), nodes visited %d, pruned %d, "
+				 + "words/board %.1f, solve mean %.0f ns p99 <%d ns; "
+				 + "lexicon lookups %d, hit ratio %.3f; "
+				 + "isOnBoard mean %.0f ns p99 <%d ns; "
+				 + "lexicon %d words, %d bytes, built in %.1f ms",
+				 solves, cacheHits, nodesVisited, nodesPruned,
+				 meanWordsPerBoard, meanSolveNanos, getSolvePercentile(0.99),
+				 lexiconLookups, getLexiconHitRatio(),
+				 meanIsOnBoardNanos, getIsOnBoardPercentile(0.99),
+				 lexiconWords, lexiconBytes, lexiconBuildNanos / 1e6);
+	}
+    }
+
+
+    private BoggleMetrics() {
+    }
+
+
+    /**
+     * @return the metrics every player reports to
+     */
+    public static BoggleMetrics get() {
+	return INSTANCE;
+    }
+
+
+    /**
+     * Makes the metrics visible to JMX clients such as jconsole, under
+     * OBJECT_NAME.  Calling it again does nothing.
+     */
+    public static synchronized void registerMBean() {
+	try {
+	    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	    ObjectName name = new ObjectName(OBJECT_NAME);
+	    if (!server.isRegistered(name))
+		server.registerMBean(INSTANCE, name);
+	}
+	catch (JMException e) {
+	    throw new IllegalStateException("registerMBean(): " + e.getMessage(), e);
+	}
+    }
+
+
+    public boolean isEnabled() {
+	return enabled;
+    }
+
+
+    public void setEnabled(boolean on) {
+	enabled = on;
+    }
+
+
+    /**
+     * @return the counters as they are now
+     */
+    public Snapshot snapshot() {
+	return new Snapshot(this);
+    }
+
+
+    public void reset() {
+	solves.reset();
+	nodesVisited.reset();
+	nodesPruned.reset();
+	cacheHits.reset();
+	solveNanos.reset();
+	wordsPerBoard.reset();
+	lexiconLookups.reset();
+	lexiconHits.reset();
+	isOnBoardNanos.reset();
+    }
+
+
+    //Reporting
+
+    /**
+     * Counts one solve.
+     * @param nanos   how long it took
+     * @param visited   tiles the search stepped onto, 0 when the engine
+     * doesn't count them
+     * @param pruned   steps not taken because no word goes that way
+     * @param words   words found
+     * @param cached   true when the solution came from the cache
+     */
+    public void recordSolve(long nanos, long visited, long pruned, int words, boolean cached) {
+	if (!enabled)
+	    return;
+	solves.increment();
+	if (cached)
+	    cacheHits.increment();
+	nodesVisited.add(visited);
+	nodesPruned.add(pruned);
+	solveNanos.record(nanos);
+	wordsPerBoard.record(words);
+    }
+
+
+    public void recordLexiconLookup(boolean found) {
+	if (!enabled)
+	    return;
+	lexiconLookups.increment();
+	if (found)
+	    lexiconHits.increment();
+    }
+
+
+    public void recordIsOnBoard(long nanos) {
+	if (enabled)
+	    isOnBoardNanos.record(nanos);
+    }
+
+
+    /**
+     * Remembers what building or loading the lexicon last cost.
+     */
+    public void recordLexicon(long nanos, long bytes, int words) {
+	lexiconBuildNanos = nanos;
+	lexiconBytes = bytes;
+	lexiconWords = words;
+    }
+
+
+    //BoggleMetricsMBean
+
+    public long getSolves() { return solves.sum(); }
+    public long getNodesVisited() { return nodesVisited.sum(); }
+    public long getNodesPruned() { return nodesPruned.sum(); }
+    public long getCacheHits() { return cacheHits.sum(); }
+    public double getMeanWordsPerBoard() { return wordsPerBoard.getMean(); }
+    public double getMeanSolveNanos() { return solveNanos.getMean(); }
+    public long getSolveNanosP99() { return solveNanos.getPercentile(0.99); }
+    public long getLexiconLookups() { return lexiconLookups.sum(); }
+    public double getLexiconHitRatio() { return snapshot().getLexiconHitRatio(); }
+    public double getMeanIsOnBoardNanos() { return isOnBoardNanos.getMean(); }
+    public long getIsOnBoardNanosP50() { return isOnBoardNanos.getPercentile(0.5); }
+    public long getIsOnBoardNanosP99() { return isOnBoardNanos.getPercentile(0.99); }
+    public long getIsOnBoardNanosMax() { return isOnBoardNanos.getMax(); }
+    public long[] getIsOnBoardHistogram() { return isOnBoardNanos.getCounts(); }
+    public long getLexiconBuildNanos() { return lexiconBuildNanos; }
+    public long getLexiconBytes() { return lexiconBytes; }
+    public int getLexiconWords() { return lexiconWords; }
+}
@@ -0,0 +1,37 @@
+/**
+ * What BoggleMetrics shows over JMX.  Times are in nanoseconds; the
+ * percentiles are upper bounds, as BoggleMetrics.Histogram keeps
+ * powers of two.
+ * @see BoggleMetrics
+ */
+public interface BoggleMetricsMBean {
+
+    boolean isEnabled();
+    void setEnabled(boolean on);
+    void reset();
+
+    //getAllValidWords
+    long getSolves();
+    long getNodesVisited();
+    long getNodesPruned();
+    long getCacheHits();
+    double getMeanWordsPerBoard();
+    double getMeanSolveNanos();
+    long getSolveNanosP99();
+
+    //isInLexicon
+    long getLexiconLookups();
+    double getLexiconHitRatio();
+
+    //isOnBoard
+    double getMeanIsOnBoardNanos();
+    long getIsOnBoardNanosP50();
+    long getIsOnBoardNanosP99();
+    long getIsOnBoardNanosMax();
+    long[] getIsOnBoardHistogram();
+
+    //the lexicon built or loaded last
+    long getLexiconBuildNanos();
+    long getLexiconBytes();
+    int getLexiconWords();
+}
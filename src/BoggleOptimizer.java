@@ -0,0 +1,475 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Searches for boards with a high total score ("killer boards").  Each
+ * worker thread runs its own simulated annealing chain: it changes the
+ * board a little, scores the result with BoggleBitboardSolver.score, and
+ * keeps the change when the score goes up, or, while the temperature is
+ * still high, sometimes when it goes down.  The temperature falls from
+ * its start to its end value over the time budget, so the chains roam
+ * early on and climb at the end.
+ *
+ * Changes follow one of two rules:
+ * MOVES_DICE keeps the board rollable with the dice bag: a die is
+ * turned to another face, or two dice swap places (with dice not on
+ * the board too).  MOVES_FREE lets any tile show any letter (Q as
+ * "Qu"): a tile changes letter, or two tiles swap.
+ *
+ * The best boards of all chains are kept, best first, without repeats.
+ *
+ * Usage:
+ * java BoggleOptimizer [ -w wordfile ] [ -r rows ] [ -c columns ]
+ *                      [ -m minwordlength ] [ -t seconds ] [ -n boards ]
+ *                      [ -j threads ] [ -s seed ] [ -free ]
+ * @see BoggleBitboardSolver
+ * @see BoggleDice
+ */
+public class BoggleOptimizer {
+
+    public static final int MOVES_DICE = 0;
+    public static final int MOVES_FREE = 1;
+
+    private static final String USAGE =
+	"Usage: java BoggleOptimizer [ -w wordfile ] [ -r rows ] [ -c columns ]"
+	+ " [ -m minwordlength ] [ -t seconds ] [ -n boards ] [ -j threads ]"
+	+ " [ -s seed ] [ -free ]";
+
+    //Faces for MOVES_FREE
+    private static final String[] LETTERS = {
+	"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M",
+	"N", "O", "P", "Qu", "R", "S", "T", "U", "V", "W", "X", "Y", "Z"
+    };
+
+    //Chains look at the clock and the temperature this often
+    private static final int CHECK_EVERY = 256;
+
+    //vars
+    private final BoggleLexicon lexicon;
+    private final int rows, cols, tiles, minWordLength;
+    private int moves = MOVES_DICE;
+    private String[][] dice = new BoggleDice().getFaces();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double startTemperature = 25, endTemperature = 0.5;
+    private int keep = 10;
+
+    private final List<Result> best = new ArrayList<Result>();  //Best first
+    private final AtomicLong evaluations = new AtomicLong();
+    private volatile long lastNanos;
+    private volatile long lastEvaluations;
+
+
+    /**
+     * A board found and its score.
+     */
+    public static class Result {
+	private final String[] board;
+	private final int score;
+
+	Result(String[] board, int score) {
+	    this.board = board;
+	    this.score = score;
+	}
+
+	/**
+	 * @return the board's letters, row by row
+	 */
+	public String[] getBoard() {
+	    return board.clone();
+	}
+
+	public int getScore() {
+	    return score;
+	}
+
+	public String toString() {
+	    StringBuilder text = new StringBuilder();
+	    for (int i = 0; i < board.length; i++) {
+		if (i > 0) text.append(',');
+		text.append(board[i]);
+	    }
+	    return score + "\t" + text;
+	}
+    }
+
+
+    /**
+     * @param lexicon   the lexicon boards are scored against
+     * @param r   number of rows
+     * @param c   number of columns
+     * @param minLength   the minimum size of a legal word
+     */
+    public BoggleOptimizer(BoggleLexicon lexicon, int r, int c, int minLength) {
+	this.lexicon = lexicon;
+	rows = r;
+	cols = c;
+	tiles = r * c;
+	minWordLength = minLength;
+    }
+
+
+    /**
+     * @param moves   MOVES_DICE (the default) or MOVES_FREE
+     */
+    public void setMoves(int moves) {
+	if (moves != MOVES_DICE && moves != MOVES_FREE)
+	    throw new IllegalArgumentException("setMoves(): unknown moves " + moves);
+	this.moves = moves;
+    }
+
+
+    /**
+     * Uses another dice bag for MOVES_DICE; the official dice otherwise.
+     */
+    public void setDice(BoggleDice bag) {
+	dice = bag.getFaces();
+    }
+
+
+    /**
+     * @param count   number of chains run at once; one per core by default
+     */
+    public void setThreads(int count) {
+	threads = Math.max(1, count);
+    }
+
+
+    /**
+     * Sets how readily a chain takes a change for the worse: one that
+     * loses d points is taken with probability exp(-d / temperature).
+     * @param start   temperature at the start of the budget
+     * @param end   temperature at the end of it
+     */
+    public void setTemperature(double start, double end) {
+	startTemperature = start;
+	endTemperature = end;
+    }
+
+
+    /**
+     * @param boards   how many of the best boards to keep
+     */
+    public void setKeep(int boards) {
+	keep = Math.max(1, boards);
+    }
+
+
+    /**
+     * Runs the chains for a while.
+     * @param millis   the time budget
+     * @param seed   seeds the chains; the same seed and thread count
+     * start from the same boards
+     * @return the best boards found, best first
+     */
+    public List<Result> optimize(long millis, long seed) {
+	synchronized (best) {
+	    best.clear();
+	}
+	final long deadline = System.nanoTime() + millis * 1000000L;
+	long before = evaluations.get();
+	long begin = System.nanoTime();
+
+	ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+		private int count = 0;
+		public synchronized Thread newThread(Runnable r) {
+		    Thread thread = new Thread(r, "boggle-optimizer-" + count++);
+		    thread.setDaemon(true);
+		    return thread;
+		}});
+	List<Callable<Void>> chains = new ArrayList<Callable<Void>>(threads);
+	for (int i = 0; i < threads; i++)
+	    chains.add(new Chain(new Random(seed + i), deadline));
+
+	try {
+	    for (Future<Void> chain : workers.invokeAll(chains))
+		chain.get();
+	}
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	catch (ExecutionException e) {
+	    throw new IllegalStateException("optimize(): chain failed", e.getCause());
+	}
+	finally {
+	    workers.shutdownNow();
+	}
+
+	lastNanos = System.nanoTime() - begin;
+	lastEvaluations = evaluations.get() - before;
+	return getBest();
+    }
+
+
+    /**
+     * @return the best boards of the last optimize, best first
+     */
+    public List<Result> getBest() {
+	synchronized (best) {
+	    return new ArrayList<Result>(best);
+	}
+    }
+
+
+    /**
+     * @return boards scored per second during the last optimize, over
+     * all threads
+     */
+    public double getEvaluationsPerSecond() {
+	return (lastNanos == 0) ? 0 : lastEvaluations * 1e9 / lastNanos;
+    }
+
+
+    /**
+     * @return boards scored by every optimize so far
+     */
+    public long getEvaluations() {
+	return evaluations.get();
+    }
+
+
+    /*
+     * Offers a chain's new best board to the shared list.
+     */
+    private void offer(String[] board, int score) {
+	synchronized (best) {
+	    if (best.size() == keep && score <= best.get(keep - 1).getScore())
+		return;
+	    int at = 0;
+	    for (Result result : best) {
+		if (result.getScore() == score && Arrays.equals(result.board, board))
+		    return;
+		if (result.getScore() < score)
+		    break;
+		at++;
+	    }
+	    best.add(at, new Result(board.clone(), score));
+	    if (best.size() > keep)
+		best.remove(keep);
+	}
+    }
+
+
+    /*
+     * One annealing chain, with a solver of its own.
+     */
+    private class Chain implements Callable<Void> {
+	private final Random randomizer;
+	private final long deadline;
+	private final BoggleBitboardSolver solver = new BoggleBitboardSolver(lexicon);
+	private final String[] board = new String[tiles];
+
+	//MOVES_DICE: the die at each place (the first tiles are on the
+	//board) and the face each die shows
+	private int[] dieAt;
+	private int[] face;
+
+	Chain(Random randomizer, long deadline) {
+	    this.randomizer = randomizer;
+	    this.deadline = deadline;
+	}
+
+	public Void call() {
+	    start();
+	    int score = score();
+	    int bestScore = score;
+	    offer(board, score);
+
+	    double temperature = startTemperature;
+	    double range = endTemperature / startTemperature;
+	    long begin = System.nanoTime();
+	    long count = 0;
+
+	    while (true) {
+		if (++count % CHECK_EVERY == 0) {
+		    long now = System.nanoTime();
+		    if (now >= deadline || Thread.currentThread().isInterrupted())
+			break;
+		    double done = (double)(now - begin) / (deadline - begin);
+		    temperature = startTemperature * Math.pow(range, done);
+		}
+
+		int undo = move();
+		int next = score();
+		int delta = next - score;
+		if (delta >= 0 || randomizer.nextDouble() < Math.exp(delta / temperature)) {
+		    score = next;
+		    if (score > bestScore) {
+			bestScore = score;
+			offer(board, score);
+		    }
+		}
+		else {
+		    undo(undo);
+		}
+	    }
+	    evaluations.addAndGet(count);
+	    return null;
+	}
+
+	/*
+	 * Rolls the starting board.
+	 */
+	private void start() {
+	    if (moves == MOVES_FREE) {
+		for (int t = 0; t < tiles; t++)
+		    board[t] = LETTERS[randomizer.nextInt(LETTERS.length)];
+		return;
+	    }
+	    //enough copies of the bag to cover the board
+	    int copies = (tiles + dice.length - 1) / dice.length;
+	    dieAt = new int[copies * dice.length];
+	    face = new int[dieAt.length];
+	    for (int i = 0; i < dieAt.length; i++) {
+		dieAt[i] = i;
+		face[i] = randomizer.nextInt(dice[i % dice.length].length);
+	    }
+	    for (int i = dieAt.length - 1; i > 0; i--)
+		swapDice(i, randomizer.nextInt(i + 1));
+	    for (int t = 0; t < tiles; t++)
+		board[t] = faceOf(dieAt[t]);
+	}
+
+	private String faceOf(int die) {
+	    return dice[die % dice.length][face[die]];
+	}
+
+	private void swapDice(int i, int j) {
+	    int die = dieAt[i];
+	    dieAt[i] = dieAt[j];
+	    dieAt[j] = die;
+	}
+
+	/*
+	 * Changes the board a little.
+	 * @return what undo needs to take the change back
+	 */
+	private int move() {
+	    int t = randomizer.nextInt(tiles);
+	    if (moves == MOVES_FREE) {
+		if (randomizer.nextInt(4) == 0) {
+		    int u = randomizer.nextInt(tiles);
+		    swapTiles(t, u);
+		    return -1 - (t * tiles + u);
+		}
+		String old = board[t];
+		String letter;
+		do {
+		    letter = LETTERS[randomizer.nextInt(LETTERS.length)];
+		} while (letter.equals(old) && LETTERS.length > 1);
+		board[t] = letter;
+		return t * LETTERS.length + Arrays.asList(LETTERS).indexOf(old);
+	    }
+
+	    if (randomizer.nextBoolean()) {
+		//swap with any die, also one that is not on the board
+		int u = randomizer.nextInt(dieAt.length);
+		swapDice(t, u);
+		refresh(t);
+		refresh(u);
+		return -1 - (t * dieAt.length + u);
+	    }
+	    int die = dieAt[t];
+	    int old = face[die];
+	    int sides = dice[die % dice.length].length;
+	    if (sides > 1)
+		face[die] = (old + 1 + randomizer.nextInt(sides - 1)) % sides;
+	    refresh(t);
+	    return t * 64 + old;
+	}
+
+	private void undo(int change) {
+	    if (moves == MOVES_FREE) {
+		if (change < 0) {
+		    change = -1 - change;
+		    swapTiles(change / tiles, change % tiles);
+		}
+		else {
+		    board[change / LETTERS.length] = LETTERS[change % LETTERS.length];
+		}
+		return;
+	    }
+	    if (change < 0) {
+		change = -1 - change;
+		int t = change / dieAt.length, u = change % dieAt.length;
+		swapDice(t, u);
+		refresh(t);
+		refresh(u);
+	    }
+	    else {
+		int t = change / 64;
+		face[dieAt[t]] = change % 64;
+		refresh(t);
+	    }
+	}
+
+	private void swapTiles(int t, int u) {
+	    String letter = board[t];
+	    board[t] = board[u];
+	    board[u] = letter;
+	}
+
+	/*
+	 * Puts the face of the die at place i on the board, if place i
+	 * is on the board.
+	 */
+	private void refresh(int i) {
+	    if (i < tiles)
+		board[i] = faceOf(dieAt[i]);
+	}
+
+	private int score() {
+	    solver.setBoard(board, rows, cols);
+	    return solver.score(minWordLength);
+	}
+    }
+
+
+    public static void main(String args[]) throws IOException {
+	String wordFile = "enable1.txt";
+	int r = 4, c = 0, minWordLength = 4, keep = 10, threads = 0;
+	double seconds = 10;
+	long seed = System.nanoTime();
+	boolean free = false;
+
+	try {
+	    for (int i = 0; i < args.length; i++) {
+		String arg = args[i];
+		if (arg.equals("-w")) wordFile = args[++i];
+		else if (arg.equals("-r")) r = Integer.parseInt(args[++i]);
+		else if (arg.equals("-c")) c = Integer.parseInt(args[++i]);
+		else if (arg.equals("-m")) minWordLength = Integer.parseInt(args[++i]);
+		else if (arg.equals("-t")) seconds = Double.parseDouble(args[++i]);
+		else if (arg.equals("-n")) keep = Integer.parseInt(args[++i]);
+		else if (arg.equals("-j")) threads = Integer.parseInt(args[++i]);
+		else if (arg.equals("-s")) seed = Long.parseLong(args[++i]);
+		else if (arg.equals("-free")) free = true;
+		else throw new IllegalArgumentException("unknown option " + arg);
+	    }
+	}
+	catch (RuntimeException e) {
+	    System.err.println(USAGE);
+	    System.exit(1);
+	}
+	if (c == 0) c = r;
+
+	BoggleOptimizer optimizer;
+	try {
+	    optimizer = new BoggleOptimizer(BoggleLexicon.open(wordFile, minWordLength),
+					     r, c, minWordLength);
+	}
+	catch (FileNotFoundException e) {
+	    System.err.println("Unable to find word list file " + wordFile);
+	    System.exit(1);
+	    return;
+	}
+	if (free) optimizer.setMoves(MOVES_FREE);
+	if (threads > 0) optimizer.setThreads(threads);
+	optimizer.setKeep(keep);
+
+	for (Result result : optimizer.optimize((long)(seconds * 1000), seed))
+	    System.out.println(result);
+	System.err.printf("%.0f boards scored per second%n", optimizer.getEvaluationsPerSecond());
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Solves a single board on several threads.  The starting tiles are
+ * split into ranges and each range is searched as a fork/join task with
+ * a BoggleSolver belonging to the worker thread, so no search state is
+ * shared.  The words of the ranges are merged at the end; a word that
+ * can be started from two tiles is only reported once.
+ * @see BogglePlayer
+ * @see BoggleSolver
+ */
+public class BoggleParallelSolver {
+
+    //Split until a task has this many starting tiles or fewer
+    private static final int MIN_TILES_PER_TASK = 1;
+
+    //vars
+    private final BoggleLexicon lexicon;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<BoggleSolver> solvers;
+
+
+    /**
+     * Creates a parallel solver that runs on the common fork/join pool.
+     */
+    public BoggleParallelSolver(BoggleLexicon lexicon) {
+	this(lexicon, ForkJoinPool.commonPool());
+    }
+
+
+    public BoggleParallelSolver(final BoggleLexicon lexicon, ForkJoinPool pool) {
+	this.lexicon = lexicon;
+	this.pool = pool;
+	solvers = new ThreadLocal<BoggleSolver>() {
+	    protected BoggleSolver initialValue() {
+		return new BoggleSolver(lexicon);
+	    }};
+    }
+
+
+    /**
+     * Finds every word on the board that is in the lexicon and at
+     * least the minimum length.
+     * @param letterArray   the letters that make up the board, row by row
+     * @param rows   number of rows
+     * @param cols   number of columns
+     * @param minimumWordLength   the minimum size of a legal word
+     * @return the words found, each once, with their paths
+     */
+    public BoggleSolution solve(String[] letterArray, int rows, int cols,
+				int minimumWordLength) {
+	int tiles = rows * cols;
+	int tilesPerTask = Math.max(MIN_TILES_PER_TASK,
+				    tiles / (pool.getParallelism() * 4));
+
+	return pool.invoke(new StartTileTask(letterArray, rows, cols,
+					     minimumWordLength, 0, tiles, tilesPerTask));
+    }
+
+
+    /*
+     * Searches from the starting tiles firstTile..lastTile-1, splitting
+     * the range in half until it is small enough.
+     */
+    private class StartTileTask extends RecursiveTask<BoggleSolution> {
+	private static final long serialVersionUID = 1L;
+
+	private final String[] letterArray;
+	private final int rows, cols, minimumWordLength;
+	private final int firstTile, lastTile, tilesPerTask;
+
+	StartTileTask(String[] letterArray, int rows, int cols, int minimumWordLength,
+		      int firstTile, int lastTile, int tilesPerTask) {
+	    this.letterArray = letterArray;
+	    this.rows = rows;
+	    this.cols = cols;
+	    this.minimumWordLength = minimumWordLength;
+	    this.firstTile = firstTile;
+	    this.lastTile = lastTile;
+	    this.tilesPerTask = tilesPerTask;
+	}
+
+	protected BoggleSolution compute() {
+	    if (lastTile - firstTile <= tilesPerTask) {
+		BoggleSolution words = new BoggleSolution();
+		BoggleSolver solver = solvers.get();
+		solver.setBoard(letterArray, rows, cols);
+		solver.solve(minimumWordLength, words, firstTile, lastTile);
+		return words;
+	    }
+
+	    int middle = (firstTile + lastTile) >>> 1;
+	    StartTileTask left = new StartTileTask(letterArray, rows, cols, minimumWordLength,
+						   firstTile, middle, tilesPerTask);
+	    StartTileTask right = new StartTileTask(letterArray, rows, cols, minimumWordLength,
+						    middle, lastTile, tilesPerTask);
+	    left.fork();
+	    BoggleSolution words = right.compute();
+	    BoggleSolution other = left.join();
+
+	    //merge the smaller solution into the bigger one
+	    if (other.size() > words.size()) {
+		BoggleSolution swap = words;
+		words = other;
+		other = swap;
+	    }
+	    Set<String> seen = new HashSet<String>(words.getWords());
+	    for (int i = 0; i < other.size(); i++) {
+		if (seen.add(other.getWord(i)))
+		    words.add(other, i);
+	    }
+	    return words;
+	}
+    }
+}
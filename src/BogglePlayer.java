@@ -1,6 +1,3 @@
-import java.awt.event.*;
-import javax.swing.*;
-import javax.swing.border.*;
 import java.util.*;
 import java.io.*;
 import java.lang.*;
@@ -44,19 +41,61 @@ public class BogglePlayer {
     private static final int COLS_DEFAULT = 4;
     private static final int TILES_DEFAULT = (ROWS_DEFAULT*COLS_DEFAULT);
     
+    //Solver engines getAllValidWords can use
+    public static final int SOLVER_CLASSIC = 0;   //search over board[][]
+    public static final int SOLVER_NO_ALLOCATION = 1;   //BoggleSolver
+    public static final int SOLVER_BITBOARD = 2;   //BoggleBitboardSolver
+    public static final int SOLVER_PARALLEL = 3;   //BoggleParallelSolver
+    public static final int SOLVER_DICTIONARY = 4;   //BoggleDictionarySolver
+    public static final int SOLVER_AUTO = 5;   //SOLVER_NO_ALLOCATION or SOLVER_DICTIONARY, per board
+    
+    //SOLVER_AUTO searches boards smaller than this ...
+    private static final int AUTO_MIN_TILES = 49;
+    //... and boards on which more lexicon words than this fit the letters
+    private static final int AUTO_MAX_CANDIDATES = 1000;
+    
+    //Boards a player's own solution cache remembers, see useSolutionCache
+    public static final int CACHE_DEFAULT = 64;
+    
+    //Outcomes of checkWord
+    public static final int WORD_OK = 0;
+    public static final int WORD_TOO_SHORT = 1;
+    public static final int WORD_NOT_ON_BOARD = 2;
+    public static final int WORD_NOT_IN_LEXICON = 3;
+    public static final int WORD_DUPLICATE = 4;
+    
   
     //vars
-    private Vector<String> lexicon; //Stores lexicon
+    private BoggleLexicon lexicon; //Stores lexicon as a word graph
+    private BoggleLexiconReloader lexiconSource; //Where a newer lexicon comes from, or null
     private String board[][];  //Stores board
     
     private int rows, cols;   //Size of board
     private int tiles; //Total number of tile on board
     private int minWordLength; //Minimum size for a valid word
-    private Vector<String> wordsOnBoard;
-    private char[] wordStart = new char[500];
-    private String[] startMatch = new String[200000];
-    private int startMatchCounter = 0;
+    private BoggleSolution solution; //Words and paths of the last solve
+    private char[] wordStart; //Letters on the classic search's path
+    private int[] wordPath; //Tiles under wordStart, x*cols + y
+    private int[] pathNode; //Lexicon node after each tile of wordPath
+    private int[] pathWord; //Word index after each tile of wordPath
+    private int[] pathLetters; //Letters of wordStart spelled after each tile of wordPath
+    private int[] nextDirection; //Next of the 9 directions to try from each tile
     private int graph[][];
+    private int[] foundStamp; //Per lexicon word, last solve that found it
+    private int solveStamp = 0;
+    private BoggleSolver solver; //Reusable engine for SOLVER_NO_ALLOCATION
+    private BoggleBitboardSolver bitboardSolver; //Same for SOLVER_BITBOARD
+    private BoggleParallelSolver parallelSolver; //Same for SOLVER_PARALLEL
+    private BoggleDictionarySolver dictionarySolver; //Same for SOLVER_DICTIONARY
+    private String[] boardLetters; //Board as last given to setBoard
+    private BoggleSolutionCache solutionCache; //Solutions of recent boards, or null
+    private BoggleSolutionCache.BoardKey boardKey; //The board's place in solutionCache, made when first needed
+    private int ownCacheSize;      //Boards in a cache of the player's own, 0 for none
+    private BoggleSolution boardSolution; //Every word on the board, once known
+    private boolean boardLookedUp; //solutionCache was asked for boardSolution
+    private Vector<Integer> checkedLocations; //Path the last checkWord found
+    private long nodesVisited, nodesPruned; //Counted by the last search, for BoggleMetrics
+    private int solverMode = SOLVER_AUTO;
     
     //Constructor for default BogglePlayer with default values
     public BogglePlayer() {
@@ -65,9 +104,10 @@ public class BogglePlayer {
 	cols = COLS_DEFAULT;
 	tiles = TILES_DEFAULT;
 	
-	lexicon = new Vector<String>();
+	lexicon = new BoggleLexicon(Collections.<String>emptySet(), minWordLength);
 	board = new String[rows][cols];
 	graph = new int[rows][cols];
+	initPathStack();
     }
   
   
@@ -80,35 +120,184 @@ public class BogglePlayer {
 	cols = c;
 	tiles = (rows*cols);
 	
-	lexicon = new Vector<String>();
+	lexicon = new BoggleLexicon(Collections.<String>emptySet(), minWordLength);
 	board = new String[rows][cols];
 	graph = new int[rows][cols];
+	initPathStack();
+    }
+    
+    
+    /*
+     * A path can't be longer than the board has tiles, so the classic
+     * search's stack is sized by the board, not by a guess at the
+     * longest word.
+     */
+    private void initPathStack() {
+	wordStart = new char[tiles];
+	wordPath = new int[tiles];
+	pathNode = new int[tiles];
+	pathWord = new int[tiles];
+	pathLetters = new int[tiles];
+	nextDirection = new int[tiles];
     }
     
   
-    /* Method to get lexicon from file; lexicon is sorted and only has
-     * valid length words.
+    /* Method to get lexicon from file; lexicon is kept as a word graph
+     * and only has valid length words.
      * @param wordList   A list of legal words in Boggle
      * @see BoggleGUI
      */
-  public void buildLexicon(Set wordList) {
-      Iterator i;
-      String newWord;
-      i = wordList.iterator();
-      
-      //read in each word to newWord until there are no words left
-      while(i.hasNext() == true) { 
-	  newWord = (String)i.next();
-	  
-	  //only add word to lexicon if it is long enough
-	  if (newWord.length() >= minWordLength)
-	      lexicon.addElement(newWord);
-      }   
-      
-      quickSort(lexicon, 0, lexicon.size() - 1);
+  public void buildLexicon(Set<String> wordList) {
+      //the lexicon sorts the words and skips those that are too short
+      BoggleEvents.LexiconLoad event = new BoggleEvents.LexiconLoad();
+      event.begin();
+      long begin = System.nanoTime();
+      setLexicon(new BoggleLexicon(wordList, minWordLength));
+      recordLexicon(System.nanoTime() - begin, event, "word set");
+  }
+    
+    
+    /**
+     * Loads the lexicon from a file: a word list, one word per line,
+     * or a compiled lexicon (see BoggleLexicon), which is memory mapped
+     * and takes next to no time.
+     * @param filename   the word list or compiled lexicon
+     * @return void
+     * @see BoggleLexicon#open
+     */
+  public void loadLexicon(String filename) throws IOException {
+      BoggleEvents.LexiconLoad event = new BoggleEvents.LexiconLoad();
+      event.begin();
+      long begin = System.nanoTime();
+      setLexicon(BoggleLexicon.open(filename, minWordLength));
+      recordLexicon(System.nanoTime() - begin, event, filename);
+  }
+    
+    
+  private void recordLexicon(long nanos, BoggleEvents.LexiconLoad event, String source) {
+      BoggleMetrics.get().recordLexicon(nanos, lexicon.getSizeInBytes(), lexicon.size());
+      if (event.shouldCommit()) {
+	  event.source = source;
+	  event.words = lexicon.size();
+	  event.bytes = lexicon.getSizeInBytes();
+	  event.commit();
+      }
+  }
+    
+    
+    /**
+     * Uses a lexicon that has already been built, e.g. one shared by
+     * several players.
+     * @param newLexicon   the lexicon to use
+     * @return void
+     */
+  public void setLexicon(BoggleLexicon newLexicon) {
+      lexicon = newLexicon;
+      foundStamp = new int[lexicon.size()];
+      solveStamp = 0;
+      solver = null;
+      bitboardSolver = null;
+      parallelSolver = null;
+      dictionarySolver = null;
+      solutionCache = (ownCacheSize == 0) ? null
+	  : new BoggleSolutionCache(lexicon, ownCacheSize);
+      boardKey = null;
+      boardSolution = null;
+      boardLookedUp = false;
+  }
+    
+    
+    /**
+     * Follows a lexicon that can be reloaded while the player is in
+     * use.  Each solve and word check starts by picking up the
+     * reloader's current lexicon, so a new word list takes effect from
+     * the next one, with the board kept.  A lexicon change empties the
+     * player's own cache and drops a shared one (see setLexicon).
+     * @param source   the reloader to follow, or null to keep the
+     * lexicon as it is
+     * @return void
+     * @see BoggleLexiconReloader
+     */
+  public void setLexiconSource(BoggleLexiconReloader source) {
+      lexiconSource = source;
+      refreshLexicon();
+  }
+    
+    
+  public BoggleLexiconReloader getLexiconSource() {
+      return lexiconSource;
+  }
+    
+    
+    /*
+     * One volatile read when the lexicon hasn't changed.
+     */
+  private void refreshLexicon() {
+      if (lexiconSource != null) {
+	  BoggleLexicon latest = lexiconSource.get();
+	  if (latest != lexicon)
+	      setLexicon(latest);
+      }
+  }
+    
+    
+    /**
+     * Shares a solution cache, e.g. between all players of a server, so
+     * a board any of them solved is not solved again.  Set the lexicon
+     * first; setLexicon drops a shared cache.  A player has no cache
+     * until it is given one here or by useSolutionCache, so boards
+     * that are only solved once cost nothing extra.
+     * @param cache   a cache for this player's lexicon, or null to
+     * solve every board
+     * @return void
+     */
+  public void setSolutionCache(BoggleSolutionCache cache) {
+      if (cache != null && cache.getLexicon() != lexicon)
+	  throw new IllegalArgumentException("setSolutionCache(): cache is for another lexicon");
+      solutionCache = cache;
+      ownCacheSize = 0;
+      boardKey = null;
+      boardSolution = null;
+      boardLookedUp = false;
+  }
+    
+    
+    /**
+     * Gives the player a solution cache of its own, which setLexicon
+     * replaces with an empty one for each new lexicon.  Worth it when
+     * boards come back, e.g. in the GUI.
+     * @param boards   boards to remember, e.g. CACHE_DEFAULT, or 0 for
+     * no cache
+     * @return void
+     */
+  public void useSolutionCache(int boards) {
+      setSolutionCache((boards == 0 || lexicon == null) ? null
+		       : new BoggleSolutionCache(lexicon, boards));
+      ownCacheSize = boards;
+  }
+    
+    
+    /*
+     * The board's key in solutionCache.  Working out a key takes every
+     * orientation of the board, so it waits until a cache asks for it.
+     */
+  private BoggleSolutionCache.BoardKey getBoardKey() {
+      if (boardKey == null)
+	  boardKey = BoggleSolutionCache.key(boardLetters, rows, cols, minWordLength);
+      return boardKey;
+  }
+    
+    
+  public BoggleSolutionCache getSolutionCache() {
+      return solutionCache;
   }
     
   
+    public BoggleLexicon getLexicon() {
+	return lexicon;
+    }
+    
+  
     /**
      * Method to create the board given an array of letters.  This
      * method is passed an array of strings.  Each element of the
@@ -122,115 +311,327 @@ public class BogglePlayer {
     public void setBoard(String[] letterArray) {
 	for(int i = 0; i < rows; i++)
 	    for(int j = 0; j < cols; j++)
-		board[i][j] = letterArray[i*rows +j];
+		board[i][j] = letterArray[i*cols + j];
+	
+	//a "Qu" tile puts two letters on the path
+	int letters = 0;
+	for (String face : letterArray)
+	    letters += face.length();
+	if (letters > wordStart.length)
+	    wordStart = new char[letters];
+	
+	boardLetters = letterArray;
+	boardKey = null;
+	boardSolution = null;
+	boardLookedUp = false;
+	getSolver().setBoard(letterArray, rows, cols);
+	if (bitboardSolver != null)
+	    bitboardSolver.setBoard(letterArray, rows, cols);
+	if (dictionarySolver != null)
+	    dictionarySolver.setBoard(letterArray, rows, cols);
+    }
+    
+    
+    /**
+     * Chooses the engine getAllValidWords uses.
+     * @param mode   SOLVER_CLASSIC, SOLVER_NO_ALLOCATION, SOLVER_BITBOARD,
+     *        SOLVER_PARALLEL, SOLVER_DICTIONARY or SOLVER_AUTO (the default)
+     * @return void
+     */
+    public void setSolverMode(int mode) {
+	if (mode < SOLVER_CLASSIC || mode > SOLVER_AUTO)
+	    throw new IllegalArgumentException("setSolverMode(): unknown mode " + mode);
+	solverMode = mode;
+    }
+    
+    
+    public int getSolverMode() {
+	return solverMode;
+    }
+    
+    
+    /*
+     * The solver is made lazily so that it always matches the current
+     * lexicon.
+     */
+    private BoggleSolver getSolver() {
+	if (solver == null) {
+	    solver = new BoggleSolver(lexicon);
+	    if (boardLetters != null)
+		solver.setBoard(boardLetters, rows, cols);
+	}
+	return solver;
+    }
+    
+    
+    private BoggleBitboardSolver getBitboardSolver() {
+	if (bitboardSolver == null) {
+	    bitboardSolver = new BoggleBitboardSolver(lexicon);
+	    if (boardLetters != null)
+		bitboardSolver.setBoard(boardLetters, rows, cols);
+	}
+	return bitboardSolver;
+    }
+    
+    
+    /*
+     * Summing up the lexicon takes a moment, so this one is only made
+     * when a board first needs it.
+     */
+    private BoggleDictionarySolver getDictionarySolver() {
+	if (dictionarySolver == null) {
+	    dictionarySolver = new BoggleDictionarySolver(lexicon);
+	    if (boardLetters != null)
+		dictionarySolver.setBoard(boardLetters, rows, cols);
+	}
+	return dictionarySolver;
+    }
+    
+    
+    /*
+     * The engine SOLVER_AUTO uses for the current board.  Searching the
+     * board is cheaper unless the board is big and its letters rule out
+     * nearly the whole lexicon (few different letters, say), in which
+     * case checking the few words left is far cheaper than a search that
+     * walks every path of those letters.  Counting the words that fit
+     * stops at AUTO_MAX_CANDIDATES, so deciding costs at most one pass
+     * over the lexicon's letter masks.
+     */
+    private int chooseSolver(int minimumWordLength) {
+	if (tiles < AUTO_MIN_TILES)
+	    return SOLVER_NO_ALLOCATION;
+	int candidates = getDictionarySolver().countCandidates(minimumWordLength,
+								 AUTO_MAX_CANDIDATES);
+	return (candidates < AUTO_MAX_CANDIDATES) ? SOLVER_DICTIONARY : SOLVER_NO_ALLOCATION;
     }
     
   
     /**
      * Method to retrieve all legal words on the board.  This method
      * returns all of the words in the board that are in the lexicon
-     * and are at least the minimum length size.
+     * and are at least the minimum length size.  Words are lowercase,
+     * whatever the case of the board's letters.
      * @param minimumWordLength  the minimum size of a legal word
      * @return a Vector of strings, each representing a word on the board
      * @see BoggleGUI
      */
     public Vector<String> getAllValidWords(int minimumWordLength) {
+	return solve(minimumWordLength).getWords();
+    }
+    
+    
+    /**
+     * Finds all legal words on the board together with the path each
+     * was found along, so callers that highlight or score the words
+     * don't need isOnBoard to search for them again.  A board in the
+     * solution cache, in any orientation, isn't searched at all.
+     * Words are lowercase.
+     * @param minimumWordLength  the minimum size of a legal word
+     * @return the words and their paths; also kept for getSolution
+     * @see BoggleGUI
+     */
+    public BoggleSolution solve(int minimumWordLength) {
     	
-    	wordsOnBoard = new Vector<String>();
-    	
-    	char firstLetter; 
+    	refreshLexicon();
+    	BoggleEvents.Solve event = new BoggleEvents.Solve();
+    	event.begin();
+    	long begin = System.nanoTime();
     	
-    	for (int i = 0; i < rows; i++) {
-    		
-    		for (int j = 0 ; j < cols; j++) {
-    			
-    			for (int n = 0; n < startMatchCounter; n++)
-    				startMatch[n] = null;
-    			
-    			startMatchCounter = 0;
-    			//startMatch = null;
-    			
-    			firstLetter = board[i][j].toLowerCase().charAt(0);
-    			
-    			for (int a = 0; a < lexicon.size(); a++) {
-    	    		
-    	    		if (lexicon.get(a).charAt(0) == firstLetter) {
-    	    			
-    	    			startMatch[startMatchCounter] = lexicon.get(a);
-    	    			//System.out.println(startMatch[startMatchCounter]);
-    	    			startMatchCounter++;
-    	    		}
-    	    	}
-    			
-    			//System.out.println(startMatchCounter);
-
-    			wordStart = null;
-    			wordStart = new char[500];
-    			
-    			//wordStart = board[i][j];
-    			getWordsOnBoard(i, j, 0);
+    	//the cache only knows boards at the player's own minimum length
+    	boolean cached = solutionCache != null && boardLetters != null
+    		&& minimumWordLength == minWordLength;
+    	if (cached) {
+    		solution = solutionCache.get(getBoardKey());
+    		if (solution != null) {
+    			boardSolution = solution;
+    			boardLookedUp = true;
+    			BoggleMetrics.get().recordSolve(System.nanoTime() - begin, 0, 0,
+    							solution.size(), true);
+    			commitSolve(event, true);
+    			return solution;
     		}
     	}
     	
-    	//System.out.println("I AM OUT");
-    	//System.out.println(wordsOnBoard.size());
+    	search(minimumWordLength);
     	
-    	return wordsOnBoard;
+    	if (cached) {
+    		solutionCache.put(getBoardKey(), solution);
+    		boardSolution = solution;
+    		boardLookedUp = true;
+    	}
+    	BoggleMetrics.get().recordSolve(System.nanoTime() - begin, nodesVisited, nodesPruned,
+    					solution.size(), false);
+    	commitSolve(event, false);
+    	return solution;
     }
     
-    public void getWordsOnBoard(int x, int y, int depth) {
+    
+    private void commitSolve(BoggleEvents.Solve event, boolean cached) {
     	
-    	int i, j;
+    	if (event.shouldCommit()) {
+    		event.rows = rows;
+    		event.cols = cols;
+    		event.words = solution.size();
+    		event.solverMode = solverMode;
+    		event.cached = cached;
+    		event.commit();
+    	}
+    }
+    
+    
+    /*
+     * Every word on the board, if the cache or a solve already found
+     * them; otherwise null.
+     */
+    private BoggleSolution getBoardSolution() {
     	
-    	if (x < 0 || y < 0 || x >= rows || y >= cols)
+    	if (!boardLookedUp && solutionCache != null && boardLetters != null) {
+    		boardLookedUp = true;
+    		boardSolution = solutionCache.get(getBoardKey());
+    	}
+    	return boardSolution;
+    }
+    
+    
+    /*
+     * Solves the board with the engine solverMode picks, into solution.
+     */
+    private void search(int minimumWordLength) {
+    	
+    	solution = new BoggleSolution();
+    	nodesVisited = 0;   //left at 0 by engines that don't count
+    	nodesPruned = 0;
+    	
+    	int mode = (solverMode == SOLVER_AUTO) ? chooseSolver(minimumWordLength) : solverMode;
+    	
+    	if (mode == SOLVER_DICTIONARY) {
+    		getDictionarySolver().solve(minimumWordLength, solution);
     		return;
+    	}
     	
-    	if (graph[x][y] == 1)
+    	if (mode == SOLVER_NO_ALLOCATION) {
+    		getSolver().solve(minimumWordLength, solution);
+    		nodesVisited = solver.getNodesVisited();
+    		nodesPruned = solver.getNodesPruned();
     		return;
+    	}
     	
-    	graph[x][y] = 1;
+    	if (mode == SOLVER_BITBOARD) {
+    		getBitboardSolver().solve(minimumWordLength, solution);
+    		nodesVisited = bitboardSolver.getNodesVisited();
+    		nodesPruned = bitboardSolver.getNodesPruned();
+    		return;
+    	}
     	
-    	wordStart[depth] = board[x][y].charAt(0);
-    	depth++;
-    	//System.out.println(wordStart.toString());
+    	if (mode == SOLVER_PARALLEL) {
+    		if (parallelSolver == null)
+    			parallelSolver = new BoggleParallelSolver(lexicon);
+    		solution = parallelSolver.solve(boardLetters, rows, cols, minimumWordLength);
+    		return;
+    	}
     	
-    	String word = new String();
-    	//System.out.println(wordStart.length);
+    	//a new stamp forgets which words the last solve found
+    	if (foundStamp == null || foundStamp.length != lexicon.size())
+    		foundStamp = new int[lexicon.size()];
+    	solveStamp++;
     	
-    	for (int f = 0; f <= depth-1; f++) {
-    		
-    		if (f == 0)
-    			word = Character.toString(wordStart[f]);
+    	for (int i = 0; i < rows; i++) {
     		
-    		else
-    			word = word.concat(Character.toString(wordStart[f]));
+    		for (int j = 0 ; j < cols; j++) {
+    			
+    			searchFrom(i, j, minimumWordLength);
+    		}
     	}
+    }
+    
+    /*
+     * Depth first search from tile (x, y).  The path is kept on an
+     * explicit stack instead of the Java stack: level d holds the d'th
+     * tile (wordPath), the lexicon node and word index its letter leads
+     * to and the next of the 9 directions to try from it.  The search
+     * stops as soon as no word in the lexicon starts with the path's
+     * letters; there is no other limit on how long a word can be.
+     */
+    private void searchFrom(int x, int y, int minimumWordLength) {
     	
-    //	System.out.println(word);
+    	int depth = stepOnto(x, y, lexicon.getRoot(), 0, 0, minimumWordLength);
     	
-    	if (depth >= minWordLength) {
+    	while (depth > 0) {
     		
-    		if (isInLexicon(word.toLowerCase()))
-    			wordsOnBoard.add(word);
+    		int tile = wordPath[depth - 1];
+    		int direction = nextDirection[depth - 1];
     		
+    		if (direction == 9) {
+    			graph[tile / cols][tile % cols] = 0;   //all directions tried; back up
+    			depth--;
+    			continue;
+    		}
+    		nextDirection[depth - 1] = direction + 1;
+    		
+    		int i = direction % 3 - 1;
+    		int j = direction / 3 - 1;
+    		depth = stepOnto(tile / cols + i, tile % cols + j,
+    				 pathNode[depth - 1], pathWord[depth - 1], depth, minimumWordLength);
     	}
+    }
+    
+    
+    /*
+     * Moves onto tile (x, y) from a path of the given depth; node is the
+     * lexicon node for the letters already on the path and word their
+     * word index.
+     * @return the new depth, or depth when the move isn't possible
+     */
+    private int stepOnto(int x, int y, int node, int word, int depth,
+			 int minimumWordLength) {
     	
-    	if (depth <= 10) {
+    	if (x < 0 || y < 0 || x >= rows || y >= cols)
+    		return depth;
+    	
+    	if (graph[x][y] == 1)
+    		return depth;
+    	
+    	//every letter of the face, so a "Qu" tile reads as "qu"
+    	String face = board[x][y];
+    	int length = (depth == 0) ? 0 : pathLetters[depth - 1];
+    	if (face.length() == 0)
+    		return depth;
+    	
+    	for (int k = 0; k < face.length(); k++) {
+    		
+    		int letter = BoggleLexicon.letterIndex(face.charAt(k));
+    		if (letter < 0)
+    			return depth;
     		
-	    	for (j = -1; j <= 1; j++) {
-	    		
-	    		for (i = -1; i<= 1; i++) {
-	    			
-	    			
-	    				getWordsOnBoard(x+i, y+j, depth);
-	    		}
-	    			
-	    	}
-	    	
+    		int edge = lexicon.getEdge(node, letter);
+    		if (edge < 0) {
+    			nodesPruned++;
+    			return depth;   //dead prefix, nothing more to find down here
+    		}
+    		node = lexicon.getEdgeTarget(edge);
+    		word += lexicon.getEdgeWordOffset(edge);
+    		wordStart[length + k] = (char)('a' + letter);
     	}
+    	length += face.length();
     	
-    	graph[x][y] = 0;
+    	nodesVisited++;
+    	graph[x][y] = 1;
+    	
+    	wordPath[depth] = x*cols + y;
+    	pathNode[depth] = node;
+    	pathWord[depth] = word;
+    	pathLetters[depth] = length;
+    	nextDirection[depth] = 0;
+    	depth++;
+    	
+    	if (length >= minimumWordLength && lexicon.isWord(node)
+    			&& foundStamp[word] != solveStamp) {
+    		
+    		foundStamp[word] = solveStamp;
+    		solution.add(new String(wordStart, 0, length), wordPath, depth);
+    	}
     	
+    	return depth;
     }
     	
     
@@ -241,131 +642,114 @@ public class BogglePlayer {
      * @see BoggleGUI
      */
     public boolean isInLexicon(String wordToCheck) {
-	boolean result;
-	result = BinarySearch(lexicon, 0, lexicon.size() - 1, wordToCheck);  
-	return result;
+	refreshLexicon();
+	return lookUp(wordToCheck);
+    }
+    
+    
+    private boolean lookUp(String wordToCheck) {
+	boolean found = inLexicon(wordToCheck);
+	BoggleMetrics.get().recordLexiconLookup(found);
+	return found;
+    }
+    
+    
+    private boolean inLexicon(String word) {
+	//a compiled lexicon may also hold shorter words
+	return word.length() >= minWordLength && lexicon.contains(word);
     }
   
   
+    /**
+     * Define how many points a player gets for a given word.
+     * @param word the word scored
+     * @param minimumWordLength the minimum size of a legal word
+     * @return one point for a word of minimum length, one more for
+     * each letter beyond
+     */
+    public static int pointsForWord(String word, int minimumWordLength) {
+	return word.length() - minimumWordLength + 1;
+    }
+    
+    
+    /**
+     * Runs all the checks a word entered by a player has to pass, in
+     * the order BoggleGUI reports them: long enough, on the board, in
+     * the lexicon, and not entered before.
+     * @param wordToCheck the word to be checked
+     * @param alreadyEntered the words the player already has (lowercase)
+     * @return WORD_OK, or the first check that failed
+     * @see #getCheckedLocations
+     * @see BoggleGUI
+     */
+    public int checkWord(String wordToCheck, Collection<String> alreadyEntered) {
+	//all the checks see the same lexicon
+	refreshLexicon();
+	checkedLocations = null;
+	if (wordToCheck.length() < minWordLength)
+	    return WORD_TOO_SHORT;
+	checkedLocations = onBoard(wordToCheck);
+	if (checkedLocations == null)
+	    return WORD_NOT_ON_BOARD;
+	if (!lookUp(wordToCheck))
+	    return WORD_NOT_IN_LEXICON;
+	if (alreadyEntered != null && alreadyEntered.contains(wordToCheck))
+	    return WORD_DUPLICATE;
+	return WORD_OK;
+    }
+    
+    
+    /**
+     * @return where the word last given to checkWord is on the board,
+     * as isOnBoard would return it, or null when checkWord didn't get
+     * as far as finding it there
+     */
+    public Vector<Integer> getCheckedLocations() {
+	return checkedLocations;
+    }
+    
+    
     /**
      * Method to check whether or not a word in on the board.  This
      * method checks if the given word can be found on the board using
      * a legal connected path (i.e. consecutive letters are adjacent,
-     * no cube on the board is used twice)
+     * no cube on the board is used twice).  The search backtracks, so
+     * any legal path is found, and a "Qu" cube matches both letters.
+     * Once every word on the board is known (solved, or in the
+     * solution cache), a long enough lexicon word is just looked up.
      * @param wordToCheck the word to be checked
      * @return a Vector of the locations of the letters.  If not found, returns null
      * @see BoggleGUI
     */
   public Vector<Integer> isOnBoard(String wordToCheck) {
-	  
-	  Vector<Integer> locations = new Vector<Integer>();
-	  int letterMatchCount = 0;
-	  char firstLetter = wordToCheck.toLowerCase().charAt(0);
-	  boolean continueSearch = true;
-	  int infiniteLoopCounter = 10;
-	  int counter = 0;
-	  int x1,y1;
-	  int i1 = 0;
-	  int j1 = 0;
-	  
-	  for (int x = 0; x < rows; x++) {
-		  
-		  for (int y = 0; y < cols; y++) {
-			  
-			  
-			  if (board[x][y].toLowerCase().charAt(0) == firstLetter) {
-					  
-					  locations.addElement((cols * x) + y);
-					  letterMatchCount++;
-			  }
-			  
-			  else
-				  continue;
-			  
-			  
-			  x1 = x;
-			  y1 = y;
-			  
-			  continueSearch = true;
-			  
-			  while (continueSearch) {
-				  
-				  for (int i = -1; i <= 1; i++) {
-						  
-					  for (int j = -1; j <= 1; j++) {
-						  
-						  try {
-							  
-						 
-							  if (board[x + i][y + j].toLowerCase().charAt(0) == wordToCheck.toLowerCase().charAt(letterMatchCount)) {
-									  
-									  
-								  locations.addElement(cols * (x + i) + y + j);
-								  letterMatchCount++;
-								  x = x + i;
-								  y = y + j;
-								  continueSearch = true;
-								  i1 = i;
-								  j1 = j;
-								  i = 2;
-								  j = 2;
-							   }
-							  
-							  else { 
-								  
-								  if (i == 1 && j == 1) {
-									  
-									  if (i1 == 1 && j1 == 1)
-										  continueSearch = false;
-									  
-									  else {
-										  
-										  if (counter <= infiniteLoopCounter) {
-											
-											counter++;
-											x = x + (i1 * -1);
-										  	y = y + (j1 * -1);
-										  	i = i1;
-										  	j = j1;
-										  	letterMatchCount--;
-										  	locations.removeElementAt(locations.size() - 1);
-										  
-										  }
-									  }
-								  }
-								  
-							  }
-						  }
-						  
-						  catch (Exception e) {
-							  
-							  continueSearch = false;
-						  }
-							  
-							  
-						  }
-					  }
-				  
-				  }
-				  
-			 if (letterMatchCount == wordToCheck.length()) {
-				
-				 return locations;
-				 
-			 }
-				 
-		     letterMatchCount = 0;
-		     locations.clear();
-		     x = x1;
-		     y = y1;
-		  
-			  
-			 }
-		  
-	  }
-	  
-	  
-      return null;
+      refreshLexicon();
+      return onBoard(wordToCheck);
+  }
+    
+    
+  private Vector<Integer> onBoard(String wordToCheck) {
+      long begin = System.nanoTime();
+      Vector<Integer> locations = findOnBoard(wordToCheck);
+      BoggleMetrics.get().recordIsOnBoard(System.nanoTime() - begin);
+      return locations;
+  }
+    
+    
+  private Vector<Integer> findOnBoard(String wordToCheck) {
+      BoggleSolution known = getBoardSolution();
+      if (known != null && inLexicon(wordToCheck.toLowerCase())) {
+	  int found = known.indexOf(wordToCheck.toLowerCase());
+	  return (found < 0) ? null : known.getLocations(found);
+      }
+      
+      int[] path = getSolver().findPath(wordToCheck);
+      if (path == null)
+	  return null;
+      
+      Vector<Integer> locations = new Vector<Integer>(path.length);
+      for (int tile : path)
+	  locations.addElement(tile);
+      return locations;
   }
     
     
@@ -383,100 +767,19 @@ public class BogglePlayer {
     }
     
     
-    /**
-     * This method sorts a vector of strings using Quicksort.
-     * @param data  the Vector to be sorted
-     *        low   the leftmost boundary of the Vector to be sorted
-     *        high  the rightmost boundary of the Vector to be sorted
-     * @return void
-     */
-    public void quickSort(Vector<String> dat, int low, int high) {
-        // Base case
-        if (low >= high) return;
-        // partition the Vector into two halves
-        int pivot = partition(dat, low, high);
-        // recursive calls to sort the two parts
-        quickSort(dat, low, pivot - 1);
-        quickSort(dat, pivot + 1, high);
-    } 
-
-
-    /**
-     * Quicksort helper method that partitions a Vector into two
-     *  halves based on a "pivot."  All the elements less than the
-     *  pivot are placed in the left half, all the rest are in the
-     *  right half.
-     * @param data  The Vector being sorted
-     *       left  The leftmost boundary
-     *       right The rightmost boundary
-     * @return the location of the pivot in the Vector
-     */
-    public int partition(Vector<String> data, int left, int right){
-        // left and right represent the boundaries of elements we
-        // haven't partitioned Our goal is to get to all of them
-        // moving partitioned elements to either side as necessary.
-        while (true) {
-            // move right "pointer" toward left
-            while (left < right && 
-		   ((String)data.elementAt(left)).compareTo(((String)data.elementAt(right))) < 0) {
-                right--;
-            }
-	    
-            if (left < right) swap(data,left++,right);
-            else return left;
-            // move left pointer toward right
-            while (left < right && ((String)data.elementAt(left)).compareTo(((String)data.elementAt(right))) < 0){
-                left++;
-            } 
-            if (left < right) swap(data,left,right--);
-            else return right;
-        }
+    public Vector<String> getWords() {
+    	
+    	return (solution == null) ? null : solution.getWords();
     }
     
-
     
     /**
-     * This method swaps two elements in a Vector (regardless of their type).
-     * @param data The vector
-     *        i    The position of one element
-     *        j    The position of the other element
-     * @return void
+     * @return the words and paths of the last solve, or null before the
+     * first one
      */
-    public void swap(Vector<String> data, int i, int j) {
-        String temp;
-        temp = (String)data.elementAt(i);
-        data.setElementAt(data.elementAt(j), i);
-        data.setElementAt(temp, j);
-    }
-    
-
-    
-    /**
-     * This method performs a recursive binary search on a Vector.  
-     * It returns true if the search item is in the Vector and false otherwise.
-     * @param s The Vector to be searched
-     *        front The leftmost boundary of the Vector that we're still interested in
-     *        back  The rightmost boundary
-     *        item  The thing we're searching for
-     * @return true when the item is in the vector, false otherwise
-    */
-    public boolean BinarySearch(Vector<String> s, int front, int back, String item){
-        // Check the middle spot
-        int middle = (front + back) / 2;
-        // base cases
-        if(((String)s.elementAt(middle)).compareTo(item)==0)
-            return true;
-        if(front >= back)
-            return false;
-        // More searching necessary
-        if(((String)s.elementAt(middle)).compareTo(item) > 0)
-            return BinarySearch(s, front, middle-1, item);
-        return BinarySearch(s, middle + 1, back, item);
-    }
-    
-    public Vector<String> getWords() {
+    public BoggleSolution getSolution() {
     	
-    	return wordsOnBoard;
+    	return solution;
     }
 
 }
@@ -0,0 +1,658 @@
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A headless server that hosts many games at once.  Clients connect
+ * over TCP and talk in lines of text; each connection plays one game
+ * at a time against the computer, which finds every word.
+ *
+ * Everything that doesn't change is shared by all games: the lexicon,
+ * a BoggleBoardPool of boards solved ahead of time, a solution cache
+ * for boards the clients bring themselves, and a few solvers that are
+ * lent out for the rare word that needs a search.  A game is no more
+ * than its board and solution (both shared with the pool), a bit per
+ * word on the board that the player has found, and the score.
+ *
+ * The lexicon can be reloaded while the server runs (see
+ * BoggleLexiconReloader).  Everything built on a lexicon is kept
+ * together as an Engine; when a new game finds the lexicon has changed
+ * it builds a new Engine and swaps it in.  Games that are going keep
+ * the Engine they started with to the end, and the old board pool is
+ * stopped.
+ *
+ * Each connection gets a thread of its own.  On a JVM with virtual
+ * threads (Java 21 and later) those are virtual threads, so idle
+ * connections cost next to nothing; on older JVMs they come from a
+ * cached pool of ordinary threads.
+ *
+ * The protocol, one request and one reply per line:
+ *
+ *     (on connecting)    HELLO rows cols minwordlength
+ *     NEW [ board ]      BOARD rows cols tile,tile,...
+ *     WORD word          OK points score | TOO_SHORT | NOT_ON_BOARD
+ *                        | NOT_IN_LEXICON | DUPLICATE
+ *     END                SCORE yourscore computerscore
+ *     COMPUTER           WORDS count word word ...
+ *     QUIT               BYE
+ *
+ * NEW without a board deals a random one; a board is written as
+ * BoggleCLI takes it.  END finishes the turn; COMPUTER then lists the
+ * computer's words.  Anything else gets ERR and a reason.
+ *
+ * Clients choose the boards, so nothing a client sends may cost much
+ * to answer: lines longer than MAX_LINE get ERR, a word longer than
+ * both the longest lexicon word and the board's letters gets ERR, and
+ * a word is only searched for on the board (see BoggleSolver.findPath,
+ * which has a step budget) when the board has enough of each of its
+ * letters.
+ *
+ * Usage:
+ * java BoggleServer [ -w wordfile ] [ -r rows ] [ -c columns ]
+ *                   [ -m minwordlength ] [ -p port ] [ -pool boards ]
+ *                   [ -watch seconds [ -anysize ]]
+ *
+ * With -watch the word file is checked that often and reloaded once a
+ * change to it has settled.  A new list with fewer than half the words
+ * of the old one is taken for a file cut short and turned down, unless
+ * -anysize is given.
+ * @see BoggleBoardPool
+ * @see BoggleLexiconReloader
+ * @see BogglePlayer
+ */
+public class BoggleServer {
+
+    public static final int PORT_DEFAULT = 4096;
+
+    private static final String USAGE =
+	"Usage: java BoggleServer [ -w wordfile ] [ -r rows ] [ -c columns ]"
+	+ " [ -m minwordlength ] [ -p port ] [ -pool boards ] [ -watch seconds [ -anysize ]]";
+
+    //Most idle solvers kept for lending
+    private static final int IDLE_SOLVERS = 8;
+
+    //Longest request line answered
+    public static final int MAX_LINE = 4096;
+
+    //vars
+    private final int rows, cols, tiles, minWordLength, poolSize;
+    private final BoggleLexiconReloader lexiconSource; //null when the lexicon is fixed
+    private volatile Engine engine;
+    private boolean poolStarted;
+
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong gamesStarted = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    private ServerSocket serverSocket;
+    private ExecutorService connectionThreads;
+    private Thread acceptor;
+
+
+    /**
+     * @param lexicon   the lexicon every game uses
+     * @param r   number of rows of every board
+     * @param c   number of columns of every board
+     * @param minLength   the minimum size of a legal word
+     * @param poolSize   random boards kept solved and ready
+     */
+    public BoggleServer(BoggleLexicon lexicon, int r, int c, int minLength, int poolSize) {
+	this(lexicon, null, r, c, minLength, poolSize);
+    }
+
+
+    /**
+     * @param source   the lexicon, which may be reloaded while the
+     * server runs
+     * @param r   number of rows of every board
+     * @param c   number of columns of every board
+     * @param minLength   the minimum size of a legal word
+     * @param poolSize   random boards kept solved and ready
+     */
+    public BoggleServer(BoggleLexiconReloader source, int r, int c, int minLength, int poolSize) {
+	this(source.get(), source, r, c, minLength, poolSize);
+    }
+
+
+    private BoggleServer(BoggleLexicon lexicon, BoggleLexiconReloader source,
+			 int r, int c, int minLength, int poolSize) {
+	rows = r;
+	cols = c;
+	tiles = r * c;
+	minWordLength = minLength;
+	this.poolSize = poolSize;
+	lexiconSource = source;
+	engine = new Engine(lexicon);
+    }
+
+
+    /**
+     * What the games need from one lexicon: the lexicon, boards dealt
+     * from it, solutions of boards clients brought, and solvers to
+     * lend.  Never changed to another lexicon; replaced instead.
+     */
+    private class Engine {
+	final BoggleLexicon lexicon;
+	final BoggleBoardPool boardPool;
+	final BoggleSolutionCache solutionCache;
+	final Queue<BoggleSolver> idleSolvers = new ConcurrentLinkedQueue<BoggleSolver>();
+	final AtomicInteger idleCount = new AtomicInteger();
+	final int maxWordLength;
+
+	Engine(BoggleLexicon lexicon) {
+	    this.lexicon = lexicon;
+	    maxWordLength = lexicon.getMaxWordLength();
+	    boardPool = new BoggleBoardPool(lexicon, rows, cols, minWordLength, poolSize);
+	    solutionCache = new BoggleSolutionCache(lexicon, poolSize);
+	}
+
+	/*
+	 * A board brought by a client: from the cache, or solved with a
+	 * borrowed solver and cached.
+	 */
+	BoggleSolution solveCustom(String[] letters) {
+	    BoggleSolutionCache.BoardKey key =
+		BoggleSolutionCache.key(letters, rows, cols, minWordLength);
+	    BoggleSolution solution = solutionCache.get(key);
+	    if (solution != null)
+		return solution;
+
+	    solution = new BoggleSolution();
+	    BoggleSolver solver = borrowSolver();
+	    try {
+		solver.setBoard(letters, rows, cols);
+		solver.solve(minWordLength, solution);
+	    }
+	    finally {
+		releaseSolver(solver);
+	    }
+	    solutionCache.put(key, solution);
+	    return solution;
+	}
+
+	BoggleSolver borrowSolver() {
+	    BoggleSolver solver = idleSolvers.poll();
+	    if (solver == null)
+		return new BoggleSolver(lexicon);
+	    idleCount.decrementAndGet();
+	    return solver;
+	}
+
+	void releaseSolver(BoggleSolver solver) {
+	    if (idleCount.incrementAndGet() <= IDLE_SOLVERS)
+		idleSolvers.offer(solver);
+	    else
+		idleCount.decrementAndGet();
+	}
+    }
+
+
+    /*
+     * The Engine for a new game.  A volatile read and a compare unless
+     * the lexicon has just been reloaded.
+     */
+    private Engine currentEngine() {
+	Engine current = engine;
+	if (lexiconSource == null || lexiconSource.get() == current.lexicon)
+	    return current;
+	return replaceEngine();
+    }
+
+
+    private synchronized Engine replaceEngine() {
+	BoggleLexicon latest = lexiconSource.get();
+	Engine old = engine;
+	if (latest == old.lexicon)
+	    return old;   //another game got here first
+
+	Engine replacement = new Engine(latest);
+	if (poolStarted)
+	    replacement.boardPool.start();
+	engine = replacement;
+	old.boardPool.stop();
+	return replacement;
+    }
+
+
+    /**
+     * @return the lexicon new games use
+     */
+    public BoggleLexicon getLexicon() {
+	return currentEngine().lexicon;
+    }
+
+
+    /**
+     * Starts filling the board pool and accepting connections.
+     * @param port   the port to listen on, 0 for any free one
+     */
+    public synchronized void start(int port) throws IOException {
+	if (serverSocket != null)
+	    throw new IllegalStateException("start(): already started");
+	startBoardPool();
+	serverSocket = new ServerSocket(port, 1024);
+	connectionThreads = newConnectionExecutor();
+
+	acceptor = new Thread(new Runnable() {
+		public void run() {
+		    accept();
+		}}, "boggle-server-accept");
+	acceptor.start();
+    }
+
+
+    /**
+     * One virtual thread per task when the JVM has them, found by
+     * reflection so the server still builds and runs on older JVMs,
+     * which get a cached pool of daemon threads instead.
+     */
+    static ExecutorService newConnectionExecutor() {
+	try {
+	    Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+	    return (ExecutorService)virtual.invoke(null);
+	}
+	catch (ReflectiveOperationException e) {
+	    return Executors.newCachedThreadPool(new ThreadFactory() {
+		    private final AtomicInteger count = new AtomicInteger();
+		    public Thread newThread(Runnable task) {
+			Thread thread = new Thread(null, task,
+						   "boggle-connection-" + count.incrementAndGet(),
+						   256 * 1024);
+			thread.setDaemon(true);
+			return thread;
+		    }});
+	}
+    }
+
+
+    /**
+     * Stops accepting connections and closes the ones that are open.
+     */
+    public synchronized void stop() {
+	poolStarted = false;
+	engine.boardPool.stop();
+	if (serverSocket == null)
+	    return;
+	try {
+	    serverSocket.close();
+	}
+	catch (IOException e) {
+	    //closing anyway
+	}
+	connectionThreads.shutdownNow();
+	//a thread blocked reading its socket only wakes when the socket closes
+	for (Socket socket : openSockets)
+	    closeQuietly(socket);
+	serverSocket = null;
+    }
+
+
+    /**
+     * @return the port the server listens on
+     */
+    public synchronized int getPort() {
+	return (serverSocket == null) ? -1 : serverSocket.getLocalPort();
+    }
+
+
+    public int getConnectionCount() {
+	return openSockets.size();
+    }
+
+
+    public long getGamesStarted() {
+	return gamesStarted.get();
+    }
+
+
+    public long getRequests() {
+	return requests.get();
+    }
+
+
+    private void accept() {
+	ServerSocket listening;
+	synchronized (this) {
+	    listening = serverSocket;
+	}
+	while (!listening.isClosed()) {
+	    final Socket socket;
+	    try {
+		socket = listening.accept();
+	    }
+	    catch (IOException e) {
+		break;   //closed by stop
+	    }
+	    try {
+		connectionThreads.execute(new Runnable() {
+			public void run() {
+			    serve(socket);
+			}});
+	    }
+	    catch (RejectedExecutionException e) {
+		closeQuietly(socket);
+	    }
+	}
+    }
+
+
+    /*
+     * Talks to one client until it quits or goes away.
+     */
+    private void serve(Socket socket) {
+	openSockets.add(socket);
+	try {
+	    socket.setTcpNoDelay(true);
+	    BufferedReader in = new BufferedReader(
+		new InputStreamReader(socket.getInputStream(), "UTF-8"));
+	    Writer out = new BufferedWriter(
+		new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+	    Session session = newSession();
+
+	    out.write(session.greeting());
+	    out.write('\n');
+	    out.flush();
+	    StringBuilder buffer = new StringBuilder();
+	    String line;
+	    while ((line = readLine(in, buffer)) != null) {
+		String reply = session.handle(line);
+		out.write(reply);
+		out.write('\n');
+		out.flush();
+		if (session.isClosed())
+		    break;
+	    }
+	}
+	catch (IOException e) {
+	    //client went away
+	}
+	finally {
+	    openSockets.remove(socket);
+	    closeQuietly(socket);
+	}
+    }
+
+
+    /*
+     * Reads a line, without its line end, like BufferedReader.readLine
+     * but keeping no more than MAX_LINE + 1 characters of it; handle
+     * turns down the rest.
+     * @return the line, or null at the end of the stream
+     */
+    private static String readLine(Reader in, StringBuilder buffer) throws IOException {
+	buffer.setLength(0);
+	int c;
+	while ((c = in.read()) >= 0 && c != '\n') {
+	    if (buffer.length() <= MAX_LINE)
+		buffer.append((char)c);
+	}
+	if (c < 0 && buffer.length() == 0)
+	    return null;
+	int end = buffer.length();
+	if (end > 0 && buffer.charAt(end - 1) == '\r')
+	    end--;
+	return buffer.substring(0, end);
+    }
+
+
+    private static void closeQuietly(Socket socket) {
+	try {
+	    socket.close();
+	}
+	catch (IOException e) {
+	    //nothing left to do
+	}
+    }
+
+
+    /**
+     * Starts filling the board pool without accepting connections, for
+     * a server that is only used through newSession.  start does this
+     * too.
+     */
+    public synchronized void startBoardPool() {
+	poolStarted = true;
+	currentEngine().boardPool.start();
+    }
+
+
+    /**
+     * A session that isn't tied to a socket, for running the protocol
+     * in-process, e.g. from a load test.
+     */
+    public Session newSession() {
+	return new Session();
+    }
+
+
+    /**
+     * The state of one connection: its game, if one is going.
+     */
+    public class Session {
+	private Engine game;             //What the game started with
+	private String[] letters;        //null before the first NEW
+	private BoggleSolution solution;
+	private BitSet found;            //Words of solution the player has
+	private int[] letterCount = new int[BoggleLexicon.ALPHABET];  //Per letter, times it is on a face
+	private int[] needed = new int[BoggleLexicon.ALPHABET];       //Per letter, times it is in a word
+	private int boardLength;         //Letters on all faces together
+	private int longestWord;         //Longer words get ERR
+	private int score;
+	private boolean turnOver;
+	private boolean closed;
+
+	Session() {
+	}
+
+	public String greeting() {
+	    return "HELLO " + rows + " " + cols + " " + minWordLength;
+	}
+
+	/**
+	 * @return true once the client has quit
+	 */
+	public boolean isClosed() {
+	    return closed;
+	}
+
+	/**
+	 * Answers one request line.
+	 * @param line   the request
+	 * @return the reply line, without its line end
+	 */
+	public String handle(String line) {
+	    requests.incrementAndGet();
+	    if (line.length() > MAX_LINE)
+		return "ERR line too long";
+	    line = line.trim();
+	    int space = line.indexOf(' ');
+	    String command = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+	    String argument = (space < 0) ? "" : line.substring(space + 1).trim();
+
+	    if (command.equals("NEW"))
+		return newGame(argument);
+	    if (command.equals("WORD"))
+		return word(argument);
+	    if (command.equals("END"))
+		return endTurn();
+	    if (command.equals("COMPUTER"))
+		return computerWords();
+	    if (command.equals("QUIT")) {
+		closed = true;
+		return "BYE";
+	    }
+	    return "ERR unknown command " + command;
+	}
+
+	private String newGame(String board) {
+	    Engine latest = currentEngine();
+	    if (board.length() == 0) {
+		BoggleBoardPool.PooledBoard dealt = latest.boardPool.take();
+		letters = dealt.getLetters();
+		solution = dealt.getSolution();
+	    }
+	    else {
+		String[] custom = BoggleDice.parseBoard(board);
+		if (custom.length != tiles)
+		    return "ERR board needs " + tiles + " tiles";
+		letters = custom;
+		solution = latest.solveCustom(custom);
+	    }
+	    game = latest;
+	    countLetters();
+	    found = new BitSet(solution.size());
+	    score = 0;
+	    turnOver = false;
+	    gamesStarted.incrementAndGet();
+
+	    StringBuilder reply = new StringBuilder("BOARD ");
+	    reply.append(rows).append(' ').append(cols).append(' ');
+	    for (int t = 0; t < tiles; t++) {
+		if (t > 0) reply.append(',');
+		reply.append(letters[t]);
+	    }
+	    return reply.toString();
+	}
+
+	private void countLetters() {
+	    Arrays.fill(letterCount, 0);
+	    boardLength = 0;
+	    for (String face : letters) {
+		for (int k = 0; k < face.length(); k++) {
+		    int letter = BoggleLexicon.letterIndex(face.charAt(k));
+		    if (letter >= 0)
+			letterCount[letter]++;
+		}
+		boardLength += face.length();
+	    }
+	    longestWord = Math.max(game.maxWordLength, boardLength);
+	}
+
+	/*
+	 * Whether the board has enough of each of word's letters.  Words
+	 * that don't are not on the board, and are turned down here
+	 * before a solver is taken.
+	 */
+	private boolean enoughLetters(String word) {
+	    if (word.length() > boardLength)
+		return false;
+	    Arrays.fill(needed, 0);
+	    for (int i = 0; i < word.length(); i++) {
+		int letter = BoggleLexicon.letterIndex(word.charAt(i));
+		if (letter >= 0 && ++needed[letter] > letterCount[letter])
+		    return false;
+	    }
+	    return true;
+	}
+
+	/*
+	 * The same checks as BogglePlayer.checkWord, in the same order,
+	 * mostly answered from the solution.
+	 */
+	private String word(String word) {
+	    if (letters == null)
+		return "ERR no game";
+	    if (turnOver)
+		return "ERR turn is over";
+	    if (word.length() > longestWord)
+		return "ERR word too long";
+	    word = word.toLowerCase();
+	    if (word.length() < minWordLength)
+		return "TOO_SHORT";
+
+	    int i = solution.indexOf(word);
+	    if (i < 0) {
+		//every long enough lexicon word on the board is in the solution
+		if (game.lexicon.contains(word) || !enoughLetters(word) || !onBoard(word))
+		    return "NOT_ON_BOARD";
+		return "NOT_IN_LEXICON";
+	    }
+	    if (found.get(i))
+		return "DUPLICATE";
+	    found.set(i);
+	    int points = BogglePlayer.pointsForWord(word, minWordLength);
+	    score += points;
+	    return "OK " + points + " " + score;
+	}
+
+	private boolean onBoard(String word) {
+	    BoggleSolver solver = game.borrowSolver();
+	    try {
+		solver.setBoard(letters, rows, cols);
+		return solver.findPath(word) != null;
+	    }
+	    finally {
+		game.releaseSolver(solver);
+	    }
+	}
+
+	private String endTurn() {
+	    if (letters == null)
+		return "ERR no game";
+	    turnOver = true;
+	    return "SCORE " + score + " " + solution.getScore(minWordLength);
+	}
+
+	private String computerWords() {
+	    if (letters == null)
+		return "ERR no game";
+	    if (!turnOver)
+		return "ERR turn is not over";
+	    StringBuilder reply = new StringBuilder("WORDS ");
+	    reply.append(solution.size());
+	    for (int i = 0; i < solution.size(); i++)
+		reply.append(' ').append(solution.getWord(i));
+	    return reply.toString();
+	}
+    }
+
+
+    public static void main(String args[]) throws IOException {
+	String wordFile = "enable1.txt";
+	int r = 4, c = 0, minWordLength = 4, port = PORT_DEFAULT, poolSize = 256, watch = 0;
+	boolean anySize = false;
+
+	try {
+	    for (int i = 0; i < args.length; i++) {
+		String arg = args[i];
+		if (arg.equals("-w")) wordFile = args[++i];
+		else if (arg.equals("-r")) r = Integer.parseInt(args[++i]);
+		else if (arg.equals("-c")) c = Integer.parseInt(args[++i]);
+		else if (arg.equals("-m")) minWordLength = Integer.parseInt(args[++i]);
+		else if (arg.equals("-p")) port = Integer.parseInt(args[++i]);
+		else if (arg.equals("-pool")) poolSize = Integer.parseInt(args[++i]);
+		else if (arg.equals("-watch")) watch = Integer.parseInt(args[++i]);
+		else if (arg.equals("-anysize")) anySize = true;
+		else throw new IllegalArgumentException("unknown option " + arg);
+	    }
+	}
+	catch (RuntimeException e) {
+	    System.err.println(USAGE);
+	    System.exit(1);
+	}
+	if (c == 0) c = r;
+
+	BoggleLexiconReloader lexicon;
+	try {
+	    lexicon = BoggleLexiconReloader.open(wordFile, minWordLength);
+	}
+	catch (FileNotFoundException e) {
+	    System.err.println("Unable to find word list file " + wordFile);
+	    System.exit(1);
+	    return;
+	}
+
+	BoggleServer server = new BoggleServer(lexicon, r, c, minWordLength, poolSize);
+	server.start(port);
+	if (anySize)
+	    lexicon.setMinimumKept(0);
+	if (watch > 0)
+	    lexicon.watch(wordFile, watch * 1000L);
+	System.err.println("Serving " + r + "x" + c + " games, words from " + wordFile
+			   + ", min word length " + minWordLength + ", on port "
+			   + server.getPort() + ".");
+    }
+}
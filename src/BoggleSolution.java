@@ -0,0 +1,154 @@
+import java.util.*;
+
+/**
+ * The words found on a board together with the path each one was found
+ * along, so that highlighting and scoring don't have to search the
+ * board again.  Paths are kept in one flat int array: the tiles of word
+ * i (row * cols + col, first letter first) are
+ * tiles[pathStart[i]..pathStart[i+1]).
+ *
+ * A solution can be cleared and filled again; its arrays are kept, so a
+ * solver reusing one solution doesn't allocate beyond the words.
+ * @see BoggleSolver
+ * @see BogglePlayer
+ */
+public class BoggleSolution {
+
+    //vars
+    private String[] words;
+    private int[] pathStart;   //pathStart[wordCount] is where the next path goes
+    private int[] tiles;
+    private int wordCount;
+
+
+    public BoggleSolution() {
+	words = new String[64];
+	pathStart = new int[65];
+	tiles = new int[256];
+    }
+
+
+    /**
+     * Forgets all words, keeping the space they took.
+     */
+    public void clear() {
+	Arrays.fill(words, 0, wordCount, null);
+	wordCount = 0;
+    }
+
+
+    /**
+     * Adds a word and its path.
+     * @param word   the word
+     * @param path   tiles of the path, from path[0]
+     * @param length   number of tiles on the path
+     */
+    public void add(String word, int[] path, int length) {
+	add(word, path, 0, length);
+    }
+
+
+    /**
+     * Adds word i of another solution.
+     */
+    public void add(BoggleSolution other, int i) {
+	add(other.words[i], other.tiles, other.pathStart[i], other.getPathLength(i));
+    }
+
+
+    private void add(String word, int[] path, int from, int length) {
+	if (wordCount == words.length) {
+	    words = Arrays.copyOf(words, 2 * wordCount);
+	    pathStart = Arrays.copyOf(pathStart, 2 * wordCount + 1);
+	}
+	int start = pathStart[wordCount];
+	if (start + length > tiles.length)
+	    tiles = Arrays.copyOf(tiles, Math.max(2 * tiles.length, start + length));
+
+	System.arraycopy(path, from, tiles, start, length);
+	words[wordCount] = word;
+	wordCount++;
+	pathStart[wordCount] = start + length;
+    }
+
+
+    /**
+     * @return number of words found
+     */
+    public int size() {
+	return wordCount;
+    }
+
+
+    public String getWord(int i) {
+	return words[i];
+    }
+
+
+    public int getPathLength(int i) {
+	return pathStart[i + 1] - pathStart[i];
+    }
+
+
+    /**
+     * @return tile k of word i's path
+     */
+    public int getPathTile(int i, int k) {
+	return tiles[pathStart[i] + k];
+    }
+
+
+    /**
+     * @return a copy of word i's path
+     */
+    public int[] getPath(int i) {
+	return Arrays.copyOfRange(tiles, pathStart[i], pathStart[i + 1]);
+    }
+
+
+    /**
+     * Word i's path in the form BogglePlayer.isOnBoard returns.
+     * @return a Vector of the locations of the letters
+     */
+    public Vector<Integer> getLocations(int i) {
+	Vector<Integer> locations = new Vector<Integer>(getPathLength(i));
+	for (int k = pathStart[i]; k < pathStart[i + 1]; k++)
+	    locations.addElement(tiles[k]);
+	return locations;
+    }
+
+
+    /**
+     * @return the words, in the order they were found
+     */
+    public Vector<String> getWords() {
+	Vector<String> result = new Vector<String>(wordCount);
+	for (int i = 0; i < wordCount; i++)
+	    result.addElement(words[i]);
+	return result;
+    }
+
+
+    /**
+     * @return the position of a word in this solution, or -1
+     */
+    public int indexOf(String word) {
+	for (int i = 0; i < wordCount; i++) {
+	    if (words[i].equals(word))
+		return i;
+	}
+	return -1;
+    }
+
+
+    /**
+     * @return the points for all the words
+     * @see BogglePlayer#pointsForWord
+     */
+    public int getScore(int minimumWordLength) {
+	int score = 0;
+	for (int i = 0; i < wordCount; i++)
+	    score += BogglePlayer.pointsForWord(words[i], minimumWordLength);
+	return score;
+    }
+}
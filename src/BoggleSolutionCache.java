@@ -0,0 +1,208 @@
+import java.util.*;
+
+/**
+ * Remembers the solutions of the boards solved most recently, so a
+ * board that comes up again (a daily puzzle, a replay, the same board
+ * at every table of a tournament) is solved only once.
+ *
+ * Turning a board a quarter turn or mirroring it doesn't change which
+ * words are on it, only where they are.  So boards are cached under a
+ * canonical key: the smallest of the encodings of the board in all 8
+ * orientations.  Every orientation of a board finds the same entry.
+ * Paths are stored in the canonical orientation and turned back into
+ * the orientation asked about on the way out.  A board that isn't
+ * square turns into one with rows and columns swapped; its key says
+ * so, and the words still match.
+ *
+ * The cache holds a fixed number of boards and forgets the one used
+ * longest ago.  It belongs to one lexicon, and is safe to share between
+ * the players and threads using that lexicon.
+ * @see BogglePlayer
+ */
+public class BoggleSolutionCache {
+
+    //vars
+    private final BoggleLexicon lexicon;
+    private final LinkedHashMap<String, BoggleSolution> boards;  //Canonical key to canonical paths
+    private long hits, misses;
+
+
+    /**
+     * Where to find a board in the cache: its canonical key, and where
+     * each of its tiles lands in the canonical orientation.  Making one
+     * costs 8 encodings of the board, so make it once per board.
+     */
+    public static class BoardKey {
+	private final String key;
+	private final int[] toCanonical;   //Tile of the board to tile of the canonical board
+	private final int[] fromCanonical;
+
+	BoardKey(String key, int[] toCanonical) {
+	    this.key = key;
+	    this.toCanonical = toCanonical;
+	    fromCanonical = new int[toCanonical.length];
+	    for (int t = 0; t < toCanonical.length; t++)
+		fromCanonical[toCanonical[t]] = t;
+	}
+
+	/**
+	 * @return the canonical encoding, the same for every orientation
+	 * of the board
+	 */
+	public String getKey() {
+	    return key;
+	}
+    }
+
+
+    /**
+     * @param lexicon   the lexicon the cached solutions are for
+     * @param capacity   most boards remembered
+     */
+    public BoggleSolutionCache(BoggleLexicon lexicon, final int capacity) {
+	this.lexicon = lexicon;
+	boards = new LinkedHashMap<String, BoggleSolution>(16, 0.75f, true) {
+	    protected boolean removeEldestEntry(Map.Entry<String, BoggleSolution> eldest) {
+		return size() > capacity;
+	    }};
+    }
+
+
+    public BoggleLexicon getLexicon() {
+	return lexicon;
+    }
+
+
+    /**
+     * Works out a board's canonical key.
+     * @param letterArray   the letters that make up the board, row by row
+     * @param rows   number of rows
+     * @param cols   number of columns
+     * @param minimumWordLength   the minimum size of a legal word, which
+     * is part of the key
+     * @return the key
+     */
+    public static BoardKey key(String[] letterArray, int rows, int cols, int minimumWordLength) {
+	int tiles = rows * cols;
+	String[] faces = new String[tiles];
+	for (int t = 0; t < tiles; t++)
+	    faces[t] = letterArray[t].toLowerCase();
+
+	String best = null;
+	int[] bestMap = null;
+	StringBuilder text = new StringBuilder();
+	int[] map = new int[tiles];
+	int[] canonical = new int[tiles];   //Tile of the board on each canonical tile
+
+	//bit 0 flips the rows, bit 1 the columns, bit 2 swaps rows and columns
+	for (int symmetry = 0; symmetry < 8; symmetry++) {
+	    boolean swap = (symmetry & 4) != 0;
+	    int newCols = swap ? rows : cols;
+	    for (int r = 0; r < rows; r++) {
+		for (int c = 0; c < cols; c++) {
+		    int row = ((symmetry & 1) != 0) ? rows - 1 - r : r;
+		    int col = ((symmetry & 2) != 0) ? cols - 1 - c : c;
+		    int to = swap ? col * newCols + row : row * newCols + col;
+		    map[r * cols + c] = to;
+		    canonical[to] = r * cols + c;
+		}
+	    }
+
+	    text.setLength(0);
+	    text.append(swap ? cols : rows).append('x').append(newCols)
+		.append('/').append(minimumWordLength).append(':');
+	    for (int t = 0; t < tiles; t++)
+		text.append(faces[canonical[t]]).append(',');
+	    String encoding = text.toString();
+	    if (best == null || encoding.compareTo(best) < 0) {
+		best = encoding;
+		bestMap = map.clone();
+	    }
+	}
+	return new BoardKey(best, bestMap);
+    }
+
+
+    /**
+     * Looks a board up.
+     * @param board   the board's key
+     * @return the board's words with paths on the board as given to
+     * key(), or null when the board isn't cached
+     */
+    public BoggleSolution get(BoardKey board) {
+	BoggleSolution stored;
+	synchronized (this) {
+	    stored = boards.get(board.key);
+	    if (stored == null) {
+		misses++;
+		return null;
+	    }
+	    hits++;
+	}
+	return remap(stored, board.fromCanonical);
+    }
+
+
+    /**
+     * Remembers a board's solution.
+     * @param board   the board's key
+     * @param solution   every word on the board, with paths on the board
+     * as given to key()
+     */
+    public void put(BoardKey board, BoggleSolution solution) {
+	BoggleSolution stored = remap(solution, board.toCanonical);
+	synchronized (this) {
+	    boards.put(board.key, stored);
+	}
+    }
+
+
+    /*
+     * A copy of a solution with every tile t of every path moved to
+     * map[t].  Solutions in the cache are never changed once stored, so
+     * this needs no lock.
+     */
+    private static BoggleSolution remap(BoggleSolution solution, int[] map) {
+	BoggleSolution copy = new BoggleSolution();
+	int[] path = new int[map.length];
+	for (int i = 0; i < solution.size(); i++) {
+	    int length = solution.getPathLength(i);
+	    for (int k = 0; k < length; k++)
+		path[k] = map[solution.getPathTile(i, k)];
+	    copy.add(solution.getWord(i), path, length);
+	}
+	return copy;
+    }
+
+
+    /**
+     * @return number of boards cached
+     */
+    public synchronized int size() {
+	return boards.size();
+    }
+
+
+    /**
+     * Forgets every board.
+     */
+    public synchronized void clear() {
+	boards.clear();
+    }
+
+
+    /**
+     * @return lookups that found their board
+     */
+    public synchronized long getHits() {
+	return hits;
+    }
+
+
+    /**
+     * @return lookups that didn't
+     */
+    public synchronized long getMisses() {
+	return misses;
+    }
+}
@@ -0,0 +1,414 @@
+import java.util.*;
+
+/**
+ * A solver whose search does not allocate.  Everything the depth first
+ * search needs (the letter on each tile, which tiles are next to which,
+ * the tiles already on the path and the letters spelled so far) lives
+ * in arrays that are set up once per board and reused from one solve to
+ * the next.  The only object made while searching is the String for a
+ * word that has been found; its path is copied into the BoggleSolution
+ * being filled.
+ *
+ * The same arrays also let findPath check a single word, such as one
+ * typed by a player, with a backtracking search.  A word that needs
+ * more of some letter than the board has is turned down before the
+ * search starts, and the search itself gives up after a fixed number
+ * of steps, so a board of repeated letters can't make it exponential.
+ *
+ * A tile can show several letters ("Qu", or digraphs such as "Th" and
+ * "Er" in other dice sets).  Its letters are turned into lexicon letter
+ * codes by setBoard; stepping onto the tile then follows one lexicon
+ * edge per letter, so a one letter tile costs no more than before.
+ *
+ * A solver is not thread safe; give each thread its own.
+ * @see BogglePlayer
+ */
+public class BoggleSolver {
+
+    //Steps findPath may take for one word before giving up
+    public static final long PATH_BUDGET_DEFAULT = 50000;
+
+    //vars
+    private BoggleLexicon lexicon;
+    private int rows, cols;      //Size of board
+    private int tiles;           //Total number of tiles on board
+
+    private int[] tileLetter;    //First letter on each tile, -1 if a face isn't all a-z
+    private int[] neighborStart; //Tile t's neighbors are neighbors[neighborStart[t]..neighborStart[t+1])
+    private int[] neighbors;
+    private boolean[] visited;   //Tiles on the current path
+    private char[] path;         //Letters on the current path
+    private char[][] tileFace;   //Whole face of each tile, lowercase ("qu")
+    private int faceLetters;     //Bit i set when letter i is on some face
+    private int letterTotal;     //Letters on all faces together
+    private int[] faceCount = new int[BoggleLexicon.ALPHABET];   //Per letter, times it is on a face
+    private int[] wordCount = new int[BoggleLexicon.ALPHABET];   //Per letter, times it is in target
+    private long pathBudget = PATH_BUDGET_DEFAULT;
+    private long pathSteps;      //Steps findPath has left
+    private int[] pathTiles;     //Tiles on the path findPath is trying
+    private int pathLength;
+    private char[] target = new char[16]; //Word findPath is looking for
+    private int targetLength;
+
+    private int[] foundStamp;    //Per lexicon word, last solve that found it
+    private int solveStamp = 0;
+    private int minWordLength;
+    private BoggleSolution found;
+    private int[] searchTiles;   //Tiles on the current path
+    private int[] searchNode;    //Lexicon node after each tile of the path
+    private int[] searchWord;    //Word index after each tile of the path
+    private int[] searchLength;  //Letters spelled after each tile of the path
+    private int[] nextNeighbor;  //Next neighbors[] entry to try from each tile
+    private int[] pathPos;       //Letters of target spelled up to each tile of findPath's path
+    private long nodesVisited;   //Tiles the last solve stepped onto
+    private long nodesPruned;    //Steps the last solve didn't take, as no word goes that way
+
+
+    public BoggleSolver(BoggleLexicon lexicon) {
+	this.lexicon = lexicon;
+	foundStamp = new int[lexicon.size()];
+    }
+
+
+    /**
+     * Sets up the board for the next solves.  Tiles are given row by
+     * row.  The arrays from the previous board are reused when the new
+     * one has the same size.
+     * @param letterArray   the letters that make up the board
+     * @param r   number of rows
+     * @param c   number of columns
+     */
+    public void setBoard(String[] letterArray, int r, int c) {
+	if (r != rows || c != cols || tileLetter == null) {
+	    rows = r;
+	    cols = c;
+	    tiles = rows * cols;
+	    tileLetter = new int[tiles];
+	    visited = new boolean[tiles];
+	    tileFace = new char[tiles][];
+	    pathTiles = new int[tiles];
+	    searchTiles = new int[tiles];
+	    searchNode = new int[tiles];
+	    searchWord = new int[tiles];
+	    searchLength = new int[tiles];
+	    nextNeighbor = new int[tiles];
+	    pathPos = new int[tiles];
+	    buildNeighbors();
+	}
+
+	faceLetters = 0;
+	Arrays.fill(faceCount, 0);
+	int letters = 0;
+	for (int t = 0; t < tiles; t++) {
+	    tileFace[t] = letterArray[t].toLowerCase().toCharArray();
+	    tileLetter[t] = (tileFace[t].length == 0) ? -1 : BoggleLexicon.letterIndex(tileFace[t][0]);
+	    for (char ch : tileFace[t]) {
+		int letter = BoggleLexicon.letterIndex(ch);
+		if (letter >= 0) {
+		    faceLetters |= 1 << letter;
+		    faceCount[letter]++;
+		}
+		else
+		    tileLetter[t] = -1;   //no word can use this tile
+	    }
+	    letters += tileFace[t].length;
+	}
+	letterTotal = letters;
+
+	//the longest path spells every face
+	if (path == null || path.length < letters)
+	    path = new char[letters];
+    }
+
+
+    /*
+     * Lists every tile's neighbors once, so the search never has to
+     * check board edges.
+     */
+    private void buildNeighbors() {
+	neighborStart = new int[tiles + 1];
+	neighbors = new int[tiles * 8];
+	int count = 0;
+
+	for (int t = 0; t < tiles; t++) {
+	    neighborStart[t] = count;
+	    int row = t / cols;
+	    int col = t % cols;
+
+	    for (int i = -1; i <= 1; i++) {
+		for (int j = -1; j <= 1; j++) {
+		    int r = row + i;
+		    int c = col + j;
+		    if ((i != 0 || j != 0) && r >= 0 && c >= 0 && r < rows && c < cols)
+			neighbors[count++] = r * cols + c;
+		}
+	    }
+	}
+	neighborStart[tiles] = count;
+    }
+
+
+    /**
+     * Finds every word on the board that is in the lexicon and at
+     * least the minimum length.  Each word is added to out once, with
+     * the first path it was found along.
+     * @param minimumWordLength   the minimum size of a legal word
+     * @param out   where to put the words found
+     */
+    public void solve(int minimumWordLength, BoggleSolution out) {
+	solve(minimumWordLength, out, 0, tiles);
+    }
+
+
+    /**
+     * Finds the words whose path starts on one of the tiles
+     * firstTile..lastTile-1.  Used to split one board between threads.
+     * @param minimumWordLength   the minimum size of a legal word
+     * @param out   where to put the words found
+     * @param firstTile   first starting tile, row by row from 0
+     * @param lastTile   one past the last starting tile
+     */
+    public void solve(int minimumWordLength, BoggleSolution out,
+		      int firstTile, int lastTile) {
+	minWordLength = minimumWordLength;
+	found = out;
+	solveStamp++;
+	nodesVisited = 0;
+	nodesPruned = 0;
+
+	for (int t = firstTile; t < lastTile; t++)
+	    search(t);
+
+	found = null;
+    }
+
+
+    /**
+     * Finds a legal path for a word: consecutive tiles are adjacent, no
+     * tile is used twice, and the faces read in order spell the word
+     * (a "Qu" tile covers two letters).  The search backtracks, so it
+     * finds a path whenever there is one, and it only goes as deep as
+     * the word is long.  Case is ignored.
+     *
+     * A word longer than all the faces together, or with more of some
+     * letter than the faces have, is not searched for at all.  The
+     * search stops after the path budget (see setPathBudget) and the
+     * word then counts as not on the board; a real word needs far
+     * fewer steps than that.
+     * @param word   the word to look for
+     * @return the tiles of the path (row * cols + col), or null when
+     * the word is not on the board
+     */
+    public int[] findPath(String word) {
+	int length = word.length();
+	if (length == 0 || tiles == 0 || length > letterTotal)
+	    return null;
+
+	if (target.length < length)
+	    target = new char[Math.max(length, 2 * target.length)];
+	Arrays.fill(wordCount, 0);
+	for (int i = 0; i < length; i++) {
+	    char c = Character.toLowerCase(word.charAt(i));
+	    int letter = BoggleLexicon.letterIndex(c);
+	    //more of a letter than the faces have can't be on the board
+	    if (letter >= 0 && ++wordCount[letter] > faceCount[letter])
+		return null;
+	    target[i] = c;
+	}
+	targetLength = length;
+
+	pathSteps = pathBudget;
+	for (int t = 0; t < tiles && pathSteps > 0; t++) {
+	    if (pathFrom(t))
+		return Arrays.copyOf(pathTiles, pathLength);
+	}
+	return null;
+    }
+
+
+    /**
+     * Limits how many steps onto a tile findPath takes for one word.
+     * @param steps   the budget, PATH_BUDGET_DEFAULT to begin with
+     */
+    public void setPathBudget(long steps) {
+	pathBudget = steps;
+    }
+
+
+    /*
+     * Tries to spell target starting on tile.  The search backtracks
+     * with an explicit stack: depth d holds the d'th tile of the path
+     * (pathTiles), how much of target it spells up to there (pathPos)
+     * and the next neighbor to try from it (nextNeighbor).  Stack and
+     * visited marks are left clean whether or not a path is found,
+     * or the path budget runs out.
+     */
+    private boolean pathFrom(int start) {
+	if (!faceMatches(start, 0))
+	    return false;
+	pathTiles[0] = start;
+	pathPos[0] = tileFace[start].length;
+	if (pathPos[0] == targetLength) {
+	    pathLength = 1;
+	    return true;
+	}
+	visited[start] = true;
+	nextNeighbor[0] = neighborStart[start];
+	int depth = 1;
+
+	while (depth > 0) {
+	    int tile = pathTiles[depth - 1];
+	    int k = nextNeighbor[depth - 1];
+	    if (k == neighborStart[tile + 1]) {
+		visited[tile] = false;   //nothing more from here; back up
+		depth--;
+		continue;
+	    }
+	    nextNeighbor[depth - 1] = k + 1;
+
+	    int next = neighbors[k];
+	    int pos = pathPos[depth - 1];
+	    if (visited[next] || !faceMatches(next, pos))
+		continue;
+	    if (--pathSteps < 0) {
+		for (int d = 0; d < depth; d++)
+		    visited[pathTiles[d]] = false;
+		return false;
+	    }
+	    pathTiles[depth] = next;
+	    pathPos[depth] = pos + tileFace[next].length;
+	    if (pathPos[depth] == targetLength) {
+		pathLength = depth + 1;
+		for (int d = 0; d < depth; d++)
+		    visited[pathTiles[d]] = false;
+		return true;
+	    }
+	    visited[next] = true;
+	    nextNeighbor[depth] = neighborStart[next];
+	    depth++;
+	}
+	return false;
+    }
+
+
+    /*
+     * Whether tile's whole face is target[pos..].
+     */
+    private boolean faceMatches(int tile, int pos) {
+	char[] face = tileFace[tile];
+	if (face.length == 0 || pos + face.length > targetLength)
+	    return false;
+	for (int k = 0; k < face.length; k++) {
+	    if (target[pos + k] != face[k])
+		return false;
+	}
+	return true;
+    }
+
+
+    /**
+     * @return tiles the last solve stepped onto, each time it did
+     */
+    public long getNodesVisited() {
+	return nodesVisited;
+    }
+
+
+    /**
+     * @return steps onto a tile the last solve turned down because no
+     * word of the lexicon starts with the letters they would spell
+     */
+    public long getNodesPruned() {
+	return nodesPruned;
+    }
+
+
+    /**
+     * @return the number of tiles on the current board
+     */
+    public int getTileCount() {
+	return tiles;
+    }
+
+
+    /*
+     * Depth first search from tile start.  Instead of recursing, the
+     * path is kept on an explicit stack: depth d holds the d'th tile
+     * (searchTiles), the lexicon node and word index its letter leads to
+     * (searchNode, searchWord) and the next neighbor to try from it
+     * (nextNeighbor).  The stack is as deep as the path is long, which
+     * can't exceed the number of tiles, so neither board size nor word
+     * length is limited by the Java stack.
+     */
+    private void search(int start) {
+	int depth = step(start, lexicon.getRoot(), 0, 0);
+
+	while (depth > 0) {
+	    int tile = searchTiles[depth - 1];
+	    int k = nextNeighbor[depth - 1];
+	    if (k == neighborStart[tile + 1]) {
+		visited[tile] = false;   //all neighbors tried; back up
+		depth--;
+		continue;
+	    }
+	    nextNeighbor[depth - 1] = k + 1;
+
+	    int next = neighbors[k];
+	    if (!visited[next])
+		depth = step(next, searchNode[depth - 1], searchWord[depth - 1], depth);
+	}
+    }
+
+
+    /*
+     * Moves onto tile from a path of the given depth.  node is the
+     * lexicon node for the letters before tile, and word the word index
+     * those letters have added up to.
+     * @return the new depth, or depth when no word starts this way
+     */
+    private int step(int tile, int node, int word, int depth) {
+	int letter = tileLetter[tile];
+	if (letter < 0)
+	    return depth;
+
+	int edge = lexicon.getEdge(node, letter);
+	if (edge < 0) {
+	    nodesPruned++;
+	    return depth;   //no word starts with this path
+	}
+	node = lexicon.getEdgeTarget(edge);
+	word += lexicon.getEdgeWordOffset(edge);
+
+	//the rest of a face such as "qu"
+	char[] face = tileFace[tile];
+	for (int k = 1; k < face.length; k++) {
+	    edge = lexicon.getEdge(node, face[k] - 'a');
+	    if (edge < 0) {
+		nodesPruned++;
+		return depth;
+	    }
+	    node = lexicon.getEdgeTarget(edge);
+	    word += lexicon.getEdgeWordOffset(edge);
+	}
+	nodesVisited++;
+
+	int length = (depth == 0) ? 0 : searchLength[depth - 1];
+	for (char ch : face)
+	    path[length++] = ch;
+
+	visited[tile] = true;
+	searchTiles[depth] = tile;
+	searchNode[depth] = node;
+	searchWord[depth] = word;
+	searchLength[depth] = length;
+	nextNeighbor[depth] = neighborStart[tile];
+	depth++;
+
+	if (length >= minWordLength && lexicon.isWord(node)
+		&& foundStamp[word] != solveStamp) {
+	    foundStamp[word] = solveStamp;
+	    found.add(new String(path, 0, length), searchTiles, depth);
+	}
+	return depth;
+    }
+}
@@ -0,0 +1,278 @@
+import java.util.*;
+
+/**
+ * Follows a word as it is typed, one letter at a time, through both the
+ * lexicon and the board.  After each letter it knows whether the letters
+ * so far are live (some word of the lexicon starts with them, and they
+ * can be traced on the board), whether they already are a word, and
+ * which tiles the last letter could be on.  A live prefix need not grow
+ * into a word that is on the board: the word's later letters may not be
+ * next to any path the prefix has.
+ *
+ * The lexicon side is just the node the prefix leads to.  The board side
+ * is every legal path that spells the prefix, kept one level per letter:
+ * an entry is a tile, how many letters of its face are used ("qu" takes
+ * two), and the entry of the letter before it, so a path can be walked
+ * back to check a tile isn't used twice.  Adding a letter only extends
+ * the paths of the last level; removing one drops that level.  So each
+ * keystroke costs the work for the new letter, not a new search.
+ *
+ * A pathological board (all one letter, say) can have too many paths to
+ * keep.  A level that overflows is cut short and marked; from then on the
+ * cursor trusts the lexicon alone, so it may call a prefix live when it
+ * isn't, but never the other way round.
+ * @see BoggleGUI
+ */
+public class BoggleWordCursor {
+
+    //Most paths kept for one letter
+    private static final int MAX_PATHS = 1 << 14;
+
+    //vars
+    private BoggleLexicon lexicon;
+    private int minWordLength;
+    private int rows, cols, tiles;
+    private char[][] tileFace;   //Whole face of each tile, lowercase
+
+    private StringBuilder text = new StringBuilder(); //Letters followed so far
+    private int[] nodes = new int[16];    //nodes[k]: lexicon node after k letters, -1 if none
+    private int[] levelEnd = new int[16];   //Paths of k letters are entries levelEnd[k-1]..levelEnd[k]
+    private boolean[] truncated = new boolean[16]; //Paths were dropped at or before letter k
+    private int[] entryTile = new int[64];
+    private int[] entryUsed = new int[64];   //Letters of the tile's face used so far
+    private int[] entryParent = new int[64]; //-1 for the first letter
+    private int[] tileStamp;     //For listing each candidate tile once
+    private int stamp = 0;
+
+
+    public BoggleWordCursor(BoggleLexicon lexicon, int minWordLength) {
+	this.lexicon = lexicon;
+	this.minWordLength = minWordLength;
+	nodes[0] = lexicon.getRoot();
+    }
+
+
+    /**
+     * Starts following words on a new board, forgetting the letters
+     * typed so far.
+     * @param letterArray   the letters that make up the board, row by row
+     * @param r   number of rows
+     * @param c   number of columns
+     */
+    public void setBoard(String[] letterArray, int r, int c) {
+	rows = r;
+	cols = c;
+	tiles = r * c;
+	tileFace = new char[tiles][];
+	for (int t = 0; t < tiles; t++)
+	    tileFace[t] = letterArray[t].toLowerCase().toCharArray();
+	tileStamp = new int[tiles];
+	reset();
+    }
+
+
+    /**
+     * Forgets all letters.
+     */
+    public void reset() {
+	text.setLength(0);
+    }
+
+
+    /**
+     * Follows the text of the entry field.  Only the letters after the
+     * part it shares with the text followed so far are redone, so typing
+     * or deleting at the end costs one letter.
+     * @param newText   the whole word typed so far
+     */
+    public void setText(String newText) {
+	int common = 0;
+	int limit = Math.min(text.length(), newText.length());
+	while (common < limit && text.charAt(common) == Character.toLowerCase(newText.charAt(common)))
+	    common++;
+	while (text.length() > common)
+	    pop();
+	for (int i = common; i < newText.length(); i++)
+	    push(newText.charAt(i));
+    }
+
+
+    /**
+     * Adds a letter to the end.
+     * @param c   the letter typed
+     * @return whether the prefix is still live
+     * @see #isLive
+     */
+    public boolean push(char c) {
+	c = Character.toLowerCase(c);
+	int level = text.length();
+	ensureLevels(level + 1);
+	text.append(c);
+
+	int node = nodes[level];
+	int letter = BoggleLexicon.letterIndex(c);
+	nodes[level + 1] = (node < 0 || letter < 0) ? -1 : lexicon.getChild(node, letter);
+
+	int start = levelEnd[level];   //new level goes right after this one
+	int next = start;
+
+	if (nodes[level + 1] < 0) {
+	    //no word starts this way; the paths don't matter any more
+	}
+	else if (level == 0) {
+	    for (int t = 0; t < tiles && next >= 0; t++) {
+		if (tileFace[t].length > 0 && tileFace[t][0] == c)
+		    next = addEntry(start, next, t, 1, -1);
+	    }
+	}
+	else {
+	    for (int e = levelEnd[level - 1]; e < start && next >= 0; e++) {
+		int tile = entryTile[e];
+		int used = entryUsed[e];
+		if (used < tileFace[tile].length) {
+		    //still inside a face such as "qu"
+		    if (tileFace[tile][used] == c)
+			next = addEntry(start, next, tile, used + 1, e);
+		    continue;
+		}
+		int row = tile / cols, col = tile % cols;
+		for (int dr = -1; dr <= 1 && next >= 0; dr++) {
+		    for (int dc = -1; dc <= 1 && next >= 0; dc++) {
+			int r = row + dr, cl = col + dc;
+			if ((dr == 0 && dc == 0) || r < 0 || cl < 0 || r >= rows || cl >= cols)
+			    continue;
+			int n = r * cols + cl;
+			if (tileFace[n].length > 0 && tileFace[n][0] == c && !onPath(e, n))
+			    next = addEntry(start, next, n, 1, e);
+		    }
+		}
+	    }
+	}
+
+	truncated[level + 1] = truncated[level] || next < 0;
+	levelEnd[level + 1] = (next < 0) ? start + MAX_PATHS : next;
+	return isLive();
+    }
+
+
+    /**
+     * Removes the last letter.
+     */
+    public void pop() {
+	if (text.length() > 0)
+	    text.setLength(text.length() - 1);
+    }
+
+
+    /**
+     * @return number of letters followed
+     */
+    public int length() {
+	return text.length();
+    }
+
+
+    /**
+     * @return true when some word of the lexicon starts with the letters
+     * so far and the letters are on the board along a legal path
+     */
+    public boolean isLive() {
+	int level = text.length();
+	if (level == 0)
+	    return true;
+	return nodes[level] >= 0 && (pathCount() > 0 || truncated[level]);
+    }
+
+
+    /**
+     * @return true when the letters so far are a word of the lexicon,
+     * long enough, on the board
+     */
+    public boolean isWord() {
+	int level = text.length();
+	if (level < minWordLength || nodes[level] < 0 || !lexicon.isWord(nodes[level]))
+	    return false;
+	if (truncated[level])
+	    return true;
+	for (int e = levelEnd[level - 1]; e < levelEnd[level]; e++) {
+	    if (entryUsed[e] == tileFace[entryTile[e]].length)
+		return true;   //the last face is used up
+	}
+	return false;
+    }
+
+
+    /**
+     * @return the tiles the last letter can be on, each once (row * cols
+     * + col), in the form BogglePlayer.isOnBoard returns
+     */
+    public Vector<Integer> getCandidateTiles() {
+	Vector<Integer> candidates = new Vector<Integer>();
+	int level = text.length();
+	if (level == 0)
+	    return candidates;
+	stamp++;
+	for (int e = levelEnd[level - 1]; e < levelEnd[level]; e++) {
+	    int tile = entryTile[e];
+	    if (tileStamp[tile] != stamp) {
+		tileStamp[tile] = stamp;
+		candidates.addElement(tile);
+	    }
+	}
+	return candidates;
+    }
+
+
+    /*
+     * Number of paths that spell the letters so far.
+     */
+    private int pathCount() {
+	int level = text.length();
+	return levelEnd[level] - levelEnd[level - 1];
+    }
+
+
+    /*
+     * Whether tile is on the path ending at entry e.
+     */
+    private boolean onPath(int e, int tile) {
+	for (; e >= 0; e = entryParent[e]) {
+	    if (entryTile[e] == tile)
+		return true;
+	}
+	return false;
+    }
+
+
+    /*
+     * Stores an entry at index next of the level starting at start.
+     * @return the index after it, or -1 when the level is full
+     */
+    private int addEntry(int start, int next, int tile, int used, int parent) {
+	if (next - start >= MAX_PATHS)
+	    return -1;
+	if (next == entryTile.length) {
+	    int size = 2 * next;
+	    entryTile = Arrays.copyOf(entryTile, size);
+	    entryUsed = Arrays.copyOf(entryUsed, size);
+	    entryParent = Arrays.copyOf(entryParent, size);
+	}
+	entryTile[next] = tile;
+	entryUsed[next] = used;
+	entryParent[next] = parent;
+	return next + 1;
+    }
+
+
+    /*
+     * Makes room for levels 0..level.
+     */
+    private void ensureLevels(int level) {
+	if (level < nodes.length)
+	    return;
+	int size = Math.max(level + 1, 2 * nodes.length);
+	nodes = Arrays.copyOf(nodes, size);
+	levelEnd = Arrays.copyOf(levelEnd, size);
+	truncated = Arrays.copyOf(truncated, size);
+    }
+}